@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.scheduling;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of dispatching the stages of one frame to the tasks repeated at each iteration
+ *
+ * The benchmarks are compiled with the engine sources, jmh-core and the JMH annotation processor. Run them with
+ * -prof gc to check that a frame allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerBenchmark {
+    private static final int[] STAGES = {
+            Scheduler.PRE_INPUT, Scheduler.POST_INPUT, Scheduler.PRE_UPDATE, Scheduler.POST_UPDATE,
+            Scheduler.POST_PROCESSING, Scheduler.CLEANING
+    };
+
+    @Param({"1000", "10000"})
+    public int taskCount;
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < taskCount; i++) {
+            int stages = STAGES[random.nextInt(STAGES.length)];
+            tasks.add(Scheduler.planRepeated(() -> counter++, stages, false, random.nextInt(100), 0));
+        }
+        // The first frame moves the planned tasks into their stage buckets
+        Scheduler.headlessLoop(1.0 / 60.0, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (Task task : tasks) {
+            task.setCanceled(true);
+        }
+        tasks.clear();
+        Scheduler.headlessLoop(1.0 / 60.0, false);
+    }
+
+    @Benchmark
+    public void dispatchFrame(Blackhole blackhole) {
+        Scheduler.headlessLoop(1.0 / 60.0, false);
+        blackhole.consume(counter);
+    }
+}
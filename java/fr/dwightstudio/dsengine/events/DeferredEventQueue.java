@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.events;
+
+import fr.dwightstudio.dsengine.events.types.Event;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue of events filled from any thread and drained by a single thread
+ */
+class DeferredEventQueue {
+
+    private static class Node {
+        private final Event event;
+        private final RegisteredHandler[] handlers;
+        private volatile Node next;
+
+        private Node(Event event, RegisteredHandler[] handlers) {
+            this.event = event;
+            this.handlers = handlers;
+        }
+    }
+
+    private final AtomicReference<Node> tail;
+    private final AtomicInteger size = new AtomicInteger();
+    private Node head;
+
+    DeferredEventQueue() {
+        this.head = new Node(null, null);
+        this.tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Add an event at the end of the queue (can be called from any thread)
+     *
+     * @param event the event
+     * @param handlers the handlers of the event
+     */
+    void offer(Event event, RegisteredHandler[] handlers) {
+        Node node = new Node(event, handlers);
+        Node previous = tail.getAndSet(node);
+        previous.next = node;
+        size.incrementAndGet();
+    }
+
+    /**
+     * Deliver the queued events in order until the queue is empty or the time budget is spent
+     * Must only be called by the draining thread
+     *
+     * @param budgetNanos the max time in nanoseconds spent delivering events
+     * @return the number of delivered events
+     */
+    int drain(long budgetNanos) {
+        long start = System.nanoTime();
+        int delivered = 0;
+        Node next;
+        while ((next = head.next) != null) {
+            head = next;
+            size.decrementAndGet();
+            EventSystem.dispatch(next.event, next.handlers);
+            next.event.recycle();
+            delivered++;
+            if (System.nanoTime() - start >= budgetNanos) break;
+        }
+        return delivered;
+    }
+
+    /**
+     * @return the number of events waiting in the queue
+     */
+    int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.events;
+
+import fr.dwightstudio.dsengine.events.types.Cancellable;
+import fr.dwightstudio.dsengine.events.types.Event;
+import fr.dwightstudio.dsengine.logging.GameLogger;
+
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers the fired events to their handlers through a bounded ring buffer
+ *
+ * Every worker reads all the events in order but only calls the handlers of its own listeners, so that each listener
+ * receives its events in the order they were fired, by a single thread.
+ */
+public class EventDispatcher {
+    // Wait strategies (how an idle worker waits for the next event)
+    public static final int BUSY_SPIN = 0;
+    public static final int YIELD = 1;
+    public static final int SLEEP = 2;
+    public static final int BLOCKING = 3;
+
+    // Overflow policies (what happens when an event is fired while the buffer is full)
+    public static final int BLOCK = 0;
+    public static final int DROP = 1;
+    public static final int CALLER_RUNS = 2;
+
+    private static final int SPIN_TRIES = 100;
+
+    private final int capacity;
+    private final int mask;
+    private final int waitStrategy;
+    private final int overflowPolicy;
+
+    // Ring buffer
+    private final Event[] events;
+    private final RegisteredHandler[][] handlers;
+    private final long[] publishTimes;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    // Workers
+    private final Thread[] workers;
+    private final AtomicLong[] consumed;
+    private final AtomicIntegerArray parked;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final AtomicLong dispatchedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * Create a new EventDispatcher and start its workers
+     *
+     * @param capacity the number of events the buffer can hold (rounded up to a power of two)
+     * @param workerCount the number of workers
+     * @param waitStrategy EventDispatcher.BUSY_SPIN, YIELD, SLEEP or BLOCKING
+     * @param overflowPolicy EventDispatcher.BLOCK, DROP or CALLER_RUNS (events fired by a handler while the buffer is
+     *                       full are always delivered by the caller)
+     */
+    public EventDispatcher(int capacity, int workerCount, int waitStrategy, int overflowPolicy) {
+        if (capacity <= 0 || workerCount <= 0) {
+            throw new IllegalArgumentException("The capacity and the worker count must be positive");
+        }
+        this.capacity = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = this.capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+
+        this.events = new Event[this.capacity];
+        this.handlers = new RegisteredHandler[this.capacity][];
+        this.publishTimes = new long[this.capacity];
+        this.published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+
+        this.workers = new Thread[workerCount];
+        this.consumed = new AtomicLong[workerCount];
+        this.parked = new AtomicIntegerArray(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            consumed[i] = new AtomicLong(-1);
+            int workerIndex = i;
+            workers[i] = new Thread(() -> work(workerIndex));
+            workers[i].setName(MessageFormat.format("Event Dispatcher Thread {0}", i));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Create a new EventDispatcher with a single blocking worker and a buffer of 1024 events
+     *
+     * @return an EventDispatcher
+     */
+    public static EventDispatcher createDefault() {
+        return new EventDispatcher(1024, 1, BLOCKING, BLOCK);
+    }
+
+    /**
+     * Publish an event to be delivered to its handlers
+     *
+     * @param event the event
+     * @param eventHandlers the handlers of the event
+     * @return false if the event has been dropped
+     */
+    boolean publish(Event event, RegisteredHandler[] eventHandlers) {
+        long sequence;
+        while (true) {
+            sequence = claimed.get() + 1;
+            if (sequence - minConsumed() > capacity) {
+                // The buffer is full
+                if (overflowPolicy == DROP || !running) {
+                    droppedEvents.incrementAndGet();
+                    event.recycle();
+                    return false;
+                } else if (overflowPolicy == CALLER_RUNS || isWorkerThread()) {
+                    // A worker firing an event cannot wait for the buffer: it is the one that has to free it
+                    EventSystem.dispatch(event, eventHandlers);
+                    dispatchedEvents.incrementAndGet();
+                    event.recycle();
+                    return true;
+                }
+                Thread.yield();
+                continue;
+            }
+            if (claimed.compareAndSet(sequence - 1, sequence)) break;
+        }
+
+        // Every worker releases the event once its handlers have been called
+        for (int i = 1; i < workers.length; i++) {
+            event.retain();
+        }
+
+        int index = (int) (sequence & mask);
+        events[index] = event;
+        handlers[index] = eventHandlers;
+        publishTimes[index] = System.nanoTime();
+        published.set(index, sequence);
+
+        if (waitStrategy == BLOCKING) {
+            for (int i = 0; i < workers.length; i++) {
+                if (parked.get(i) == 1) {
+                    LockSupport.unpark(workers[i]);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void work(int workerIndex) {
+        AtomicLong sequence = consumed[workerIndex];
+        while (running) {
+            long next = sequence.get() + 1;
+            int index = (int) (next & mask);
+
+            int tries = 0;
+            while (published.get(index) != next) {
+                if (!running) return;
+                waitForEvent(workerIndex, index, next, tries++);
+            }
+
+            Event event = events[index];
+            RegisteredHandler[] eventHandlers = handlers[index];
+            if (workerIndex == 0) {
+                recordLatency(System.nanoTime() - publishTimes[index]);
+            }
+
+            if (event instanceof Cancellable) {
+                // The whole chain of a cancellable event runs on the first worker, in priority order, so that a
+                // cancellation is seen by the next handlers, while the other workers wait so that each listener still
+                // receives its events in order
+                if (workerIndex == 0) {
+                    for (AtomicLong other : consumed) {
+                        if (other != sequence && !awaitSequence(other, next - 1)) return;
+                    }
+                    EventSystem.dispatch(event, eventHandlers);
+                } else if (!awaitSequence(consumed[0], next)) {
+                    return;
+                }
+            } else {
+                for (RegisteredHandler handler : eventHandlers) {
+                    if (handler.shard % workers.length == workerIndex) {
+                        EventListener listener = handler.getListener();
+                        if (listener == null) continue;
+                        try {
+                            handler.invoker.invoke(listener, event);
+                        } catch (Exception e) {
+                            GameLogger.getLogger("EventDispatcher").error(MessageFormat.format("Error while handling {0} ({1})", event.getClass().getSimpleName(), handler.name));
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+            event.recycle();
+            sequence.set(next);
+        }
+    }
+
+    /**
+     * Wait until another worker has consumed a sequence
+     *
+     * @param other the sequence of the other worker
+     * @param target the sequence to reach
+     * @return false if the dispatcher has been shut down
+     */
+    private boolean awaitSequence(AtomicLong other, long target) {
+        int tries = 0;
+        while (other.get() < target) {
+            if (!running) return false;
+            if (tries++ < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    private void waitForEvent(int workerIndex, int index, long next, int tries) {
+        if (tries < SPIN_TRIES || waitStrategy == BUSY_SPIN) {
+            Thread.onSpinWait();
+        } else if (waitStrategy == YIELD) {
+            Thread.yield();
+        } else if (waitStrategy == SLEEP) {
+            LockSupport.parkNanos(100_000L);
+        } else {
+            parked.set(workerIndex, 1);
+            // Check again after announcing the park, a publisher may have missed the flag
+            if (published.get(index) != next && running) {
+                LockSupport.parkNanos(1_000_000L);
+            }
+            parked.set(workerIndex, 0);
+        }
+    }
+
+    private void recordLatency(long latency) {
+        dispatchedEvents.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        long max;
+        do {
+            max = maxLatency.get();
+        } while (latency > max && !maxLatency.compareAndSet(max, latency));
+    }
+
+    private boolean isWorkerThread() {
+        Thread current = Thread.currentThread();
+        for (Thread worker : workers) {
+            if (worker == current) return true;
+        }
+        return false;
+    }
+
+    private long minConsumed() {
+        long min = Long.MAX_VALUE;
+        for (AtomicLong sequence : consumed) {
+            min = Math.min(min, sequence.get());
+        }
+        return min;
+    }
+
+    /**
+     * Stop the workers, the events still in the buffer are not delivered
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public int getQueueDepth() {
+        return (int) Math.max(0, claimed.get() - minConsumed());
+    }
+
+    /**
+     * @return the number of events delivered since the last reset
+     */
+    public long getDispatchedEvents() {
+        return dispatchedEvents.get();
+    }
+
+    /**
+     * @return the number of events dropped because the buffer was full since the last reset
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return the average time in nanoseconds between the fire of an event and the start of its delivery
+     */
+    public long getAverageLatencyNanos() {
+        long count = dispatchedEvents.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    /**
+     * @return the max time in nanoseconds between the fire of an event and the start of its delivery
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Reset the metrics
+     */
+    public void resetMetrics() {
+        dispatchedEvents.set(0);
+        droppedEvents.set(0);
+        totalLatency.set(0);
+        maxLatency.set(0);
+    }
+
+    /**
+     * @return the buffer capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -13,5 +13,20 @@ import java.lang.annotation.RetentionPolicy;
 
 @Retention(RetentionPolicy.RUNTIME)
 public @interface EventHandler {
+    // Priorities (handlers with the highest priority are called first)
+    int LOWEST = -200;
+    int LOW = -100;
+    int NORMAL = 0;
+    int HIGH = 100;
+    int HIGHEST = 200;
 
+    /**
+     * @return the priority of the handler (see EventHandler.NORMAL for example)
+     */
+    int priority() default NORMAL;
+
+    /**
+     * @return true if the handler is still called once the event has been cancelled by a previous handler
+     */
+    boolean ignoreCancelled() default false;
 }
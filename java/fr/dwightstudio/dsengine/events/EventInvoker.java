@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.events;
+
+import fr.dwightstudio.dsengine.events.types.Event;
+
+/**
+ * Calls an EventHandler method on a listener
+ * Implementations are generated by the EventSystem when a listener is registered
+ */
+public interface EventInvoker {
+    void invoke(EventListener listener, Event event);
+}
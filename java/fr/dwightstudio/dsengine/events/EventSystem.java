@@ -8,23 +8,47 @@
 
 package fr.dwightstudio.dsengine.events;
 
+import fr.dwightstudio.dsengine.events.types.Cancellable;
 import fr.dwightstudio.dsengine.events.types.Event;
 import fr.dwightstudio.dsengine.inputs.KeyboardListener;
 import fr.dwightstudio.dsengine.inputs.MouseListener;
 import fr.dwightstudio.dsengine.logging.GameLogger;
+import fr.dwightstudio.dsengine.scheduling.Scheduler;
+import fr.dwightstudio.dsengine.scheduling.Task;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.text.MessageFormat;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.lwjgl.glfw.GLFW.*;
 
 public class EventSystem implements Runnable {
     private final long window;
 
-    private static final HashSet<EventListener> eventListeners = new HashSet<>();
+    private static final Set<EventListener> eventListeners = Collections.newSetFromMap(new WeakHashMap<>());
+    private static final ReferenceQueue<EventListener> collectedListeners = new ReferenceQueue<>();
+    private static final List<RegisteredHandler> registeredHandlers = new ArrayList<>();
+    private static final Map<Class<?>, RegisteredHandler[]> dispatchTable = new ConcurrentHashMap<>();
+    private static final Comparator<RegisteredHandler> HANDLER_ORDER = (a, b) -> Integer.compare(b.priority, a.priority);
+    private static EventDispatcher dispatcher;
+    private static final DeferredEventQueue deferredEvents = new DeferredEventQueue();
+    private static volatile Task deferredTask;
+    private static final Map<Object, Event> coalescedEvents = new LinkedHashMap<>();
+    private static final List<Event> flushedEvents = new ArrayList<>();
+    private static volatile Task coalescingTask;
+    private static volatile long coalescedEventCount;
 
     public EventSystem(long window) {
         this.window = window;
@@ -45,46 +69,299 @@ public class EventSystem implements Runnable {
      * @param event the event to fire
      */
     public static void fire(Event event) {
-        //"Je REFLECHIT, ta compris la REFLECTION !!!"
-        Runnable runnable = () -> {
-            for (EventListener eventListener : eventListeners) {
-                for (Method method : eventListener.getClass().getDeclaredMethods()) {
-                    if (method.isAnnotationPresent(EventHandler.class)) {
-                        Class<?> type = event.getClass();
-                        while (type != Object.class) {
-                            if (method.getParameterTypes()[0] == type) {
-                                try {
-                                    method.invoke(eventListener, event);
-                                    break;
-                                } catch (IllegalAccessException | InvocationTargetException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                            type = type.getSuperclass();
-                        }
+        purgeCollectedListeners();
+        if (coalescingTask != null && event.getCoalescingKey() != null) {
+            Event replaced;
+            boolean cancelled = false;
+            synchronized (coalescedEvents) {
+                // Removed first so that the new event takes the place of the last fired one in the delivery order
+                replaced = coalescedEvents.remove(event.getCoalescingKey());
+                if (replaced != null && replaced.getClass() != event.getClass()) {
+                    // Opposite transitions of the same state (like a hover then an unhover), neither is delivered
+                    cancelled = true;
+                    coalescedEventCount += 2;
+                } else {
+                    coalescedEvents.put(event.getCoalescingKey(), event);
+                    if (replaced != null) {
+                        coalescedEventCount++;
+                    }
+                }
+            }
+            if (replaced != null) {
+                replaced.recycle();
+            }
+            if (cancelled) {
+                event.recycle();
+            }
+            return;
+        }
+        publish(event);
+    }
+
+    /**
+     * Send an event to its handlers, through the deferred queue or the dispatcher
+     *
+     * @param event the event
+     */
+    private static void publish(Event event) {
+        RegisteredHandler[] handlers = getHandlers(event.getClass());
+        if (handlers.length == 0) {
+            event.recycle();
+            return;
+        }
+
+        if (deferredTask != null) {
+            deferredEvents.offer(event, handlers);
+        } else {
+            getDispatcher().publish(event, handlers);
+        }
+    }
+
+    /**
+     * Coalesce the events having a coalescing key (see Event.getCoalescingKey)
+     * Those events are held until the next pass of the stage, where only the last event fired for each key is
+     * delivered, in the order they were fired. Two events of different classes sharing a key cancel each other out.
+     * They can therefore be delivered after events fired later without key.
+     *
+     * @param stage the Scheduler stage where the held events are delivered (see Scheduler.POST_INPUT for example)
+     */
+    public static synchronized void setCoalescing(int stage) {
+        disableCoalescing();
+        coalescingTask = Scheduler.planRepeated(EventSystem::flushCoalescedEvents, stage, false, Integer.MIN_VALUE, 0);
+    }
+
+    /**
+     * Stop coalescing the events (default), the held events are delivered at the next pass of the stage
+     */
+    public static synchronized void disableCoalescing() {
+        if (coalescingTask != null) {
+            Task task = coalescingTask;
+            coalescingTask = null;
+            Scheduler.plan(() -> {
+                flushCoalescedEvents();
+                task.setCanceled(true);
+            }, task.stages, false, Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * @return true if the events having a coalescing key are coalesced
+     */
+    public static boolean isCoalescing() {
+        return coalescingTask != null;
+    }
+
+    /**
+     * @return the number of events dropped because a later event had the same coalescing key or cancelled them
+     */
+    public static long getCoalescedEventCount() {
+        return coalescedEventCount;
+    }
+
+    /**
+     * Publish the events held for coalescing, in the order they were fired
+     */
+    private static void flushCoalescedEvents() {
+        synchronized (coalescedEvents) {
+            if (coalescedEvents.isEmpty()) return;
+            flushedEvents.addAll(coalescedEvents.values());
+            coalescedEvents.clear();
+        }
+        for (Event event : flushedEvents) {
+            publish(event);
+        }
+        flushedEvents.clear();
+    }
+
+    /**
+     * Deliver the fired events on the main thread, during a Scheduler stage, instead of through the dispatcher
+     * The events fired from any thread are queued and delivered in order at each pass of the stage, until the time
+     * budget is spent (the remaining events are delivered at the next pass).
+     *
+     * @param stage the Scheduler stage (see Scheduler.POST_INPUT for example)
+     * @param budgetNanos the max time in nanoseconds spent delivering events at each pass
+     */
+    public static synchronized void setDeferredDelivery(int stage, long budgetNanos) {
+        disableDeferredDelivery();
+        deferredTask = Scheduler.planRepeated(() -> deferredEvents.drain(budgetNanos), stage, false, Integer.MIN_VALUE, 0);
+    }
+
+    /**
+     * Deliver the fired events through the dispatcher again (default)
+     * The events still queued are delivered at the next pass of the stage
+     */
+    public static synchronized void disableDeferredDelivery() {
+        if (deferredTask != null) {
+            Task task = deferredTask;
+            deferredTask = null;
+            Scheduler.plan(() -> {
+                deferredEvents.drain(Long.MAX_VALUE);
+                task.setCanceled(true);
+            }, task.stages, false, Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * @return true if the events are delivered on the main thread during a Scheduler stage
+     */
+    public static boolean isDeferredDelivery() {
+        return deferredTask != null;
+    }
+
+    /**
+     * @return the number of events waiting for the deferred delivery
+     */
+    public static int getDeferredEventCount() {
+        return deferredEvents.size();
+    }
+
+    /**
+     * Set the dispatcher delivering the fired events
+     * The previous dispatcher is shut down
+     *
+     * @param eventDispatcher an EventDispatcher
+     */
+    public static synchronized void setDispatcher(EventDispatcher eventDispatcher) {
+        if (dispatcher != null && dispatcher != eventDispatcher) {
+            dispatcher.shutdown();
+        }
+        dispatcher = eventDispatcher;
+    }
+
+    /**
+     * @return the dispatcher delivering the fired events
+     */
+    public static synchronized EventDispatcher getDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = EventDispatcher.createDefault();
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Stop the dispatcher, called when the game loop ends
+     */
+    public static synchronized void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * Call every handler with the event
+     * The event is not recycled, the caller owns it
+     *
+     * @param event the event
+     * @param handlers the handlers of the event class
+     */
+    static void dispatch(Event event, RegisteredHandler[] handlers) {
+        Cancellable cancellable = event instanceof Cancellable ? (Cancellable) event : null;
+        for (RegisteredHandler handler : handlers) {
+            // Once cancelled, only the handlers ignoring the cancellation are still called
+            if (cancellable != null && !handler.ignoreCancelled && cancellable.isCancelled()) continue;
+            EventListener listener = handler.getListener();
+            if (listener == null) continue;
+            try {
+                handler.invoker.invoke(listener, event);
+            } catch (Exception e) {
+                GameLogger.getLogger("EventSystem").error(MessageFormat.format("Error while handling {0} ({1})", event.getClass().getSimpleName(), handler.name));
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Get the handlers of an event class (including the handlers of its supertypes), by decreasing priority
+     * Handlers with the same priority are kept in registration order
+     * The result is cached until a listener is registered or unregistered
+     *
+     * @param eventClass the event class
+     * @return the handlers
+     */
+    static RegisteredHandler[] getHandlers(Class<?> eventClass) {
+        RegisteredHandler[] handlers = dispatchTable.get(eventClass);
+        if (handlers == null) {
+            synchronized (registeredHandlers) {
+                removeCollectedHandlers();
+                List<RegisteredHandler> matching = new ArrayList<>();
+                for (RegisteredHandler handler : registeredHandlers) {
+                    if (handler.eventType.isAssignableFrom(eventClass)) {
+                        matching.add(handler);
                     }
                 }
+                matching.sort(HANDLER_ORDER);
+                handlers = matching.toArray(new RegisteredHandler[0]);
+                dispatchTable.put(eventClass, handlers);
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * Remove the handlers of the collected weak listeners if the garbage collector has reported any
+     */
+    private static void purgeCollectedListeners() {
+        if (collectedListeners.poll() == null) return;
+
+        synchronized (registeredHandlers) {
+            if (removeCollectedHandlers()) {
+                dispatchTable.clear();
             }
-        };
-        Thread thread = new Thread(runnable);
-        thread.setName("Event Handler Thread");
-        thread.start();
+        }
+    }
+
+    /**
+     * Remove the handlers of the collected weak listeners, must be called while holding the registry lock
+     *
+     * @return true if handlers have been removed
+     */
+    private static boolean removeCollectedHandlers() {
+        while (collectedListeners.poll() != null) {
+            // Drain the queue, the handlers are checked directly
+        }
+        return registeredHandlers.removeIf(RegisteredHandler::isCollected);
     }
 
     /**
      * Register a new listener
+     * The listener stays reachable until it is unregistered
      *
      * @param eventListener the event listener to register
      */
     public static void registerListener(EventListener eventListener) {
-        for (Method method : eventListener.getClass().getDeclaredMethods()) {
-            if (method.isAnnotationPresent(EventHandler.class)) {
-                if (method.getParameterCount() == 1 && method.getReturnType() == Void.TYPE && Modifier.isPublic(method.getModifiers()) && Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
-                    eventListeners.add(eventListener);
-                } else {
-                    GameLogger.getLogger("EventSystem").error(MessageFormat.format("Invalid EventHandler detected ({0}@{1})", method.getName(), eventListener.getClass().getName()));
+        register(eventListener, false);
+    }
+
+    /**
+     * Register a new listener without keeping it reachable
+     * The listener is unregistered automatically once it has been collected by the garbage collector
+     *
+     * @param eventListener the event listener to register
+     */
+    public static void registerWeakListener(EventListener eventListener) {
+        register(eventListener, true);
+    }
+
+    private static void register(EventListener eventListener, boolean weak) {
+        synchronized (registeredHandlers) {
+            removeCollectedHandlers();
+            if (!eventListeners.add(eventListener)) return;
+
+            for (Method method : eventListener.getClass().getDeclaredMethods()) {
+                if (method.isAnnotationPresent(EventHandler.class)) {
+                    if (method.getParameterCount() == 1 && method.getReturnType() == Void.TYPE && Modifier.isPublic(method.getModifiers()) && Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                        try {
+                            registeredHandlers.add(new RegisteredHandler(eventListener, method, weak ? collectedListeners : null));
+                        } catch (ReflectiveOperationException e) {
+                            GameLogger.getLogger("EventSystem").error(MessageFormat.format("Inaccessible EventHandler detected ({0}@{1})", method.getName(), eventListener.getClass().getName()));
+                        }
+                    } else {
+                        GameLogger.getLogger("EventSystem").error(MessageFormat.format("Invalid EventHandler detected ({0}@{1})", method.getName(), eventListener.getClass().getName()));
+                    }
                 }
             }
+            dispatchTable.clear();
         }
     }
 
@@ -94,7 +371,34 @@ public class EventSystem implements Runnable {
      * @param eventListener the event listener to unregister
      */
     public static void unregisterListener(EventListener eventListener){
-        eventListeners.remove(eventListener);
+        synchronized (registeredHandlers) {
+            if (!eventListeners.remove(eventListener)) return;
+
+            registeredHandlers.removeIf(handler -> handler.getListener() == eventListener);
+            dispatchTable.clear();
+        }
+    }
+
+    /**
+     * Unregister several event listeners at once
+     *
+     * @param listeners the event listeners to unregister
+     */
+    public static void unregisterListeners(Collection<? extends EventListener> listeners) {
+        if (listeners.isEmpty()) return;
+
+        synchronized (registeredHandlers) {
+            Set<EventListener> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (EventListener listener : listeners) {
+                if (eventListeners.remove(listener)) {
+                    removed.add(listener);
+                }
+            }
+            if (removed.isEmpty()) return;
+
+            registeredHandlers.removeIf(handler -> handler.isCollected() || removed.contains(handler.getListener()));
+            dispatchTable.clear();
+        }
     }
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.events;
+
+import fr.dwightstudio.dsengine.events.types.Event;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+/**
+ * An EventHandler method compiled once into a direct call
+ */
+class RegisteredHandler {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, EventListener.class, Event.class);
+
+    private final EventListener strongListener;
+    private final WeakReference<EventListener> weakListener;
+    final Class<?> eventType;
+    final EventInvoker invoker;
+    final String name;
+    final int shard;
+    final int priority;
+    final boolean ignoreCancelled;
+
+    /**
+     * Create a new RegisteredHandler
+     *
+     * @param listener the listener owning the method
+     * @param method a valid EventHandler method of the listener
+     * @param collectedListeners the queue notified when the listener is collected, null to keep the listener reachable
+     * @throws ReflectiveOperationException if the method cannot be accessed
+     */
+    RegisteredHandler(EventListener listener, Method method, ReferenceQueue<EventListener> collectedListeners) throws ReflectiveOperationException {
+        if (collectedListeners == null) {
+            this.strongListener = listener;
+            this.weakListener = null;
+        } else {
+            this.strongListener = null;
+            this.weakListener = new WeakReference<>(listener, collectedListeners);
+        }
+        this.eventType = method.getParameterTypes()[0];
+        this.invoker = compile(method);
+        this.name = method.getName() + "@" + listener.getClass().getName();
+        this.shard = System.identityHashCode(listener) & Integer.MAX_VALUE;
+
+        EventHandler annotation = method.getAnnotation(EventHandler.class);
+        this.priority = annotation.priority();
+        this.ignoreCancelled = annotation.ignoreCancelled();
+    }
+
+    /**
+     * @return the listener owning the handler, null if it was weakly referenced and has been collected
+     */
+    EventListener getListener() {
+        return weakListener == null ? strongListener : weakListener.get();
+    }
+
+    /**
+     * @return true if the listener was weakly referenced and has been collected
+     */
+    boolean isCollected() {
+        return weakListener != null && weakListener.get() == null;
+    }
+
+    /**
+     * Compile a method into an EventInvoker
+     * A generated class calling the method directly is used when possible, otherwise the call goes through a MethodHandle
+     *
+     * @param method the method to compile
+     * @return an EventInvoker calling the method
+     * @throws ReflectiveOperationException if the method cannot be accessed
+     */
+    private static EventInvoker compile(Method method) throws ReflectiveOperationException {
+        Class<?> owner = method.getDeclaringClass();
+        MethodType implementationType = MethodType.methodType(void.class, owner, method.getParameterTypes()[0]);
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(EventInvoker.class),
+                    INVOKER_TYPE, handle, implementationType);
+            return (EventInvoker) callSite.getTarget().invoke();
+        } catch (Throwable ignored) {
+            // The listener class cannot host a generated class (hidden or restricted class for example)
+        }
+
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).asType(INVOKER_TYPE);
+        return (listener, event) -> {
+            try {
+                handle.invokeExact(listener, event);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.events.types;
+
+/**
+ * An event that can be cancelled by a handler, the following handlers are skipped unless they ignore the cancellation
+ */
+public interface Cancellable {
+
+    /**
+     * @return true if the event has been cancelled
+     */
+    boolean isCancelled();
+
+    /**
+     * Cancel the event (or restore it)
+     *
+     * @param cancelled the new value
+     */
+    void setCancelled(boolean cancelled);
+}
@@ -8,12 +8,19 @@
 
 package fr.dwightstudio.dsengine.events.types;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Base Event class
+ *
+ * An event obtained from an EventPool is owned by the EventSystem once fired and recycled when every handler has been
+ * called, so a handler must not keep a reference to it without calling retain() (then recycle() when done).
  */
 public class Event {
 
-    private final Thread thread;
+    private Thread thread;
+    private EventPool<?> pool;
+    private final AtomicInteger references = new AtomicInteger();
 
     public Event() {
         this.thread = Thread.currentThread();
@@ -26,4 +33,61 @@ public class Event {
         return thread;
     }
 
+    /**
+     * Events with the same non-null key can be coalesced while they wait for their delivery, only the last one is
+     * delivered (see EventSystem.setCoalescing)
+     * Events of different classes must only share a key if they are opposite transitions of the same state, they
+     * cancel each other out when coalesced
+     *
+     * @return the coalescing key of the event (null by default: never coalesced)
+     */
+    public Object getCoalescingKey() {
+        return null;
+    }
+
+    /**
+     * @return true if the event comes from an EventPool
+     */
+    public final boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Prevent a pooled event from being recycled until recycle() is called
+     * Does nothing if the event is not pooled
+     */
+    public final void retain() {
+        if (pool != null) {
+            references.incrementAndGet();
+        }
+    }
+
+    /**
+     * Release a reference to a pooled event, the event returns to its pool when the last reference is released
+     * Does nothing if the event is not pooled
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public final void recycle() {
+        if (pool != null && references.decrementAndGet() == 0) {
+            ((EventPool) pool).release(this);
+        }
+    }
+
+    /**
+     * Prepare a pooled event to be used again
+     *
+     * @param owner the pool of the event
+     */
+    final void acquire(EventPool<?> owner) {
+        this.pool = owner;
+        this.thread = Thread.currentThread();
+        this.references.set(1);
+    }
+
+    /**
+     * Called when the event returns to its pool, overriding classes should clear their references there
+     */
+    protected void reset() {
+        this.thread = null;
+    }
 }
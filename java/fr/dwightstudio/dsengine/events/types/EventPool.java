@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.events.types;
+
+import java.util.function.Supplier;
+
+/**
+ * Pool of reusable events, for the events fired at a high frequency
+ *
+ * @param <T> the event class
+ */
+public class EventPool<T extends Event> {
+
+    private final Supplier<T> factory;
+    private final Event[] freeEvents;
+    private int freeCount;
+
+    private long createdEvents;
+    private long reusedEvents;
+
+    /**
+     * Create a new EventPool
+     *
+     * @param factory creates a new event when the pool is empty
+     * @param maxSize the max number of free events kept by the pool
+     */
+    public EventPool(Supplier<T> factory, int maxSize) {
+        this.factory = factory;
+        this.freeEvents = new Event[maxSize];
+        this.freeCount = 0;
+    }
+
+    /**
+     * Get a free event (or a new one if the pool is empty)
+     * The event is recycled by the EventSystem once fired and delivered
+     *
+     * @return an event
+     */
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        T event = null;
+        synchronized (this) {
+            if (freeCount > 0) {
+                event = (T) freeEvents[--freeCount];
+                freeEvents[freeCount] = null;
+                reusedEvents++;
+            } else {
+                createdEvents++;
+            }
+        }
+        if (event == null) {
+            event = factory.get();
+        }
+        event.acquire(this);
+        return event;
+    }
+
+    /**
+     * Put back an event in the pool (called by Event.recycle())
+     *
+     * @param event the event
+     */
+    void release(T event) {
+        event.reset();
+        synchronized (this) {
+            if (freeCount < freeEvents.length) {
+                freeEvents[freeCount++] = event;
+            }
+        }
+    }
+
+    /**
+     * @return the number of events waiting in the pool
+     */
+    public synchronized int getFreeCount() {
+        return freeCount;
+    }
+
+    /**
+     * @return the number of events created by the pool
+     */
+    public synchronized long getCreatedEvents() {
+        return createdEvents;
+    }
+
+    /**
+     * @return the number of events reused instead of created
+     */
+    public synchronized long getReusedEvents() {
+        return reusedEvents;
+    }
+}
@@ -8,15 +8,27 @@
 
 package fr.dwightstudio.dsengine.events.types.gui.button;
 
+import fr.dwightstudio.dsengine.events.types.Cancellable;
 import fr.dwightstudio.dsengine.graphics.gui.Button;
 
 /**
  * Event fired when a Button is clicked
  */
-public class ButtonClickEvent extends ButtonEvent {
+public class ButtonClickEvent extends ButtonEvent implements Cancellable {
+
+    private volatile boolean cancelled;
 
     public ButtonClickEvent(Button button) {
         super(button);
     }
 
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
 }
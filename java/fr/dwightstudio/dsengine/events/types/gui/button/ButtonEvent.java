@@ -16,12 +16,34 @@ import fr.dwightstudio.dsengine.graphics.gui.Button;
  */
 public class ButtonEvent extends GUIEvent {
 
-    private final Button button;
+    private Button button;
 
     public ButtonEvent(Button button) {
         this.button = button;
     }
 
+    /**
+     * Create an event without Button, used by the EventPools
+     */
+    protected ButtonEvent() {
+        this(null);
+    }
+
+    /**
+     * Set the Button of a pooled event
+     *
+     * @param button a Button object
+     */
+    public void setObject(Button button) {
+        this.button = button;
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        this.button = null;
+    }
+
     /**
      * @return a Button object
      */
@@ -18,4 +18,22 @@ public class ButtonHoverEvent extends ButtonEvent{
     public ButtonHoverEvent(Button button) {
         super(button);
     }
+
+    /**
+     * Create an event without Button, used by the EventPools
+     */
+    public ButtonHoverEvent() {
+        super();
+    }
+
+    /**
+     * Hover and unhover events of the same Button share their key, a hover and an unhover fired before the delivery
+     * cancel each other out when coalesced
+     *
+     * @return the Button
+     */
+    @Override
+    public Object getCoalescingKey() {
+        return getObject();
+    }
 }
@@ -8,14 +8,16 @@
 
 package fr.dwightstudio.dsengine.events.types.gui.button;
 
+import fr.dwightstudio.dsengine.events.types.Cancellable;
 import fr.dwightstudio.dsengine.graphics.gui.Button;
 
 /**
  * Event fired when a Button is released
  */
-public class ButtonReleaseEvent extends ButtonEvent {
+public class ButtonReleaseEvent extends ButtonEvent implements Cancellable {
 
     private final double clickMillis;
+    private volatile boolean cancelled;
 
     public ButtonReleaseEvent(Button button, double clickMillis) {
         super(button);
@@ -28,4 +30,14 @@ public class ButtonReleaseEvent extends ButtonEvent {
     public double getClickMillis() {
         return clickMillis;
     }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
 }
@@ -17,4 +17,22 @@ public class ButtonUnhoverEvent extends ButtonEvent {
     public ButtonUnhoverEvent(Button button) {
         super(button);
     }
+
+    /**
+     * Create an event without Button, used by the EventPools
+     */
+    public ButtonUnhoverEvent() {
+        super();
+    }
+
+    /**
+     * Hover and unhover events of the same Button share their key, a hover and an unhover fired before the delivery
+     * cancel each other out when coalesced
+     *
+     * @return the Button
+     */
+    @Override
+    public Object getCoalescingKey() {
+        return getObject();
+    }
 }
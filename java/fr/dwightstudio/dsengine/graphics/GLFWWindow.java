@@ -9,9 +9,13 @@
 package fr.dwightstudio.dsengine.graphics;
 
 import fr.dwightstudio.dsengine.events.EventSystem;
+import fr.dwightstudio.dsengine.graphics.objects.TextureArray;
 import fr.dwightstudio.dsengine.graphics.utils.FramebufferManager;
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
 import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
 import fr.dwightstudio.dsengine.logging.GameLogger;
+import fr.dwightstudio.dsengine.scheduling.JobSystem;
+import fr.dwightstudio.dsengine.scheduling.Scheduler;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
 
@@ -145,6 +149,7 @@ public class GLFWWindow {
             glfwPollEvents(); // The key callback will be invoked only during this call
 
             masterLoop(dt);
+            GLState.endFrame();
 
             // Calculate the deltaTime
             endTime = glfwGetTime();
@@ -154,11 +159,15 @@ public class GLFWWindow {
 
         // End of loop
         GameLogger.getLogger("GLFWWindow").info("Cleaning...");
+        Scheduler.shutdown(); // Stop the async task workers
+        JobSystem.shutdown(); // Stop the job workers
+        EventSystem.shutdown(); // Stop the event dispatcher
         try {
             this.eventThread.join(); // Interrupt the eventThread
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        TextureArray.deleteAll(); // Delete the TextureArrays shared by the renderers
         glfwFreeCallbacks(window); // Freeing all the callbacks
         glfwDestroyWindow(window); // Destroy the GLFWWindow
         glfwTerminate(); // Terminate GLFW
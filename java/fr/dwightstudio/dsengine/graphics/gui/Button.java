@@ -9,6 +9,7 @@
 package fr.dwightstudio.dsengine.graphics.gui;
 
 import fr.dwightstudio.dsengine.events.EventSystem;
+import fr.dwightstudio.dsengine.events.types.EventPool;
 import fr.dwightstudio.dsengine.events.types.gui.button.ButtonClickEvent;
 import fr.dwightstudio.dsengine.events.types.gui.button.ButtonHoverEvent;
 import fr.dwightstudio.dsengine.events.types.gui.button.ButtonReleaseEvent;
@@ -16,10 +17,13 @@ import fr.dwightstudio.dsengine.events.types.gui.button.ButtonUnhoverEvent;
 import fr.dwightstudio.dsengine.graphics.objects.Color;
 import fr.dwightstudio.dsengine.graphics.objects.Spritesheet;
 import fr.dwightstudio.dsengine.graphics.primitives.Surface;
+import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
 import fr.dwightstudio.dsengine.inputs.MouseListener;
+import fr.dwightstudio.dsengine.scripting.Scene;
 import org.joml.Vector2f;
+import org.joml.Vector2fc;
 
-import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.lwjgl.glfw.GLFW.glfwGetTime;
 
@@ -30,7 +34,21 @@ public class Button extends Surface {
     private double clickMillis;
     private Spritesheet buttonSpritesheet;
 
-    private static final HashSet<Button> buttonsList = new HashSet<>();
+    // Spatial index state, managed by the WidgetGrid
+    WidgetGrid grid;
+    volatile WidgetGrid pendingGrid;
+    final AtomicBoolean indexQueued = new AtomicBoolean();
+    float minX = Float.NaN;
+    float minY = Float.NaN;
+    float maxX = Float.NaN;
+    float maxY = Float.NaN;
+    int cellMinX;
+    int cellMinY;
+    int cellMaxX;
+    int cellMaxY;
+
+    private static final EventPool<ButtonHoverEvent> hoverEvents = new EventPool<>(ButtonHoverEvent::new, 64);
+    private static final EventPool<ButtonUnhoverEvent> unhoverEvents = new EventPool<>(ButtonUnhoverEvent::new, 64);
 
     /**
      * Create a new Button
@@ -41,7 +59,6 @@ public class Button extends Surface {
      */
     public Button(Vector2f position, Vector2f scale, Color color) {
         super(position, scale, color);
-        buttonsList.add(this);
     }
 
     /**
@@ -65,7 +82,6 @@ public class Button extends Surface {
             throw new IllegalArgumentException("The Spritesheet must contain at least 1 sprite!");
         }
         this.buttonSpritesheet = buttonSpritesheet;
-        buttonsList.add(this);
     }
 
     /**
@@ -92,53 +108,90 @@ public class Button extends Surface {
      */
     protected void setHover(boolean hover) {
         if (!this.hover && hover) {
-            EventSystem.fire(new ButtonHoverEvent(this));
+            ButtonHoverEvent event = hoverEvents.obtain();
+            event.setObject(this);
+            EventSystem.fire(event);
             changeTexture(clicked, true);
         } else if (this.hover && !hover) {
-            EventSystem.fire(new ButtonUnhoverEvent(this));
+            ButtonUnhoverEvent event = unhoverEvents.obtain();
+            event.setObject(this);
+            EventSystem.fire(event);
             changeTexture(clicked, false);
         }
         this.hover = hover;
     }
 
     /**
-     * Check if the user click on this button
+     * Report the bounds changes to the WidgetGrid of the Scene
+     *
+     * @param dt the delta time
      */
-    private void checkButtonClick() {
-        if (MouseListener.isButtonPressed(0)) {
-            if (MouseListener.getOrthoCursorPos().x >= this.getTransform().position.x + this.renderGroup.getTransform().position.x && MouseListener.getOrthoCursorPos().x <= this.getTransform().position.x + this.renderGroup.getTransform().position.x + this.getTransform().scale.x + this.renderGroup.getTransform().scale.x) {
-                if (MouseListener.getOrthoCursorPos().y >= this.getTransform().position.y + this.renderGroup.getTransform().position.y && MouseListener.getOrthoCursorPos().y <= this.getTransform().position.y + this.renderGroup.getTransform().position.y + this.getTransform().scale.y + this.renderGroup.getTransform().scale.y) {
-                    this.setClicked(true);
-                    return;
-                }
-            }
+    @Override
+    public void update(double dt) {
+        super.update(dt);
+        Scene scene = renderGroup != null ? renderGroup.getScene() : null;
+        if (scene != null && (grid != scene.getWidgetGrid() || boundsChanged())) {
+            scene.getWidgetGrid().markDirty(this);
         }
-        this.setClicked(false);
     }
 
     /**
-     * Check if the user hover this button
+     * @return true if the on-screen bounds differ from the indexed ones
      */
-    private void checkButtonHover() {
-        if (MouseListener.getOrthoCursorPos().x >= this.getTransform().position.x + this.renderGroup.getTransform().position.x && MouseListener.getOrthoCursorPos().x <= this.getTransform().position.x + this.renderGroup.getTransform().position.x + this.getTransform().scale.x + this.renderGroup.getTransform().scale.x) {
-            if (MouseListener.getOrthoCursorPos().y >= this.getTransform().position.y + this.renderGroup.getTransform().position.y && MouseListener.getOrthoCursorPos().y <= this.getTransform().position.y + this.renderGroup.getTransform().position.y + this.getTransform().scale.y + this.renderGroup.getTransform().scale.y) {
-                this.setHover(true);
-                return;
-            }
-        }
-        this.setHover(false);
+    private boolean boundsChanged() {
+        float x = this.getTransform().position.x + this.renderGroup.getTransform().position.x;
+        float y = this.getTransform().position.y + this.renderGroup.getTransform().position.y;
+        return x != minX || y != minY
+                || x + this.getTransform().scale.x + this.renderGroup.getTransform().scale.x != maxX
+                || y + this.getTransform().scale.y + this.renderGroup.getTransform().scale.y != maxY;
+    }
+
+    /**
+     * Compute the on-screen bounds of the Button
+     *
+     * @return true if the bounds have changed
+     */
+    boolean computeBounds() {
+        if (!boundsChanged()) return false;
+
+        minX = this.getTransform().position.x + this.renderGroup.getTransform().position.x;
+        minY = this.getTransform().position.y + this.renderGroup.getTransform().position.y;
+        maxX = minX + this.getTransform().scale.x + this.renderGroup.getTransform().scale.x;
+        maxY = minY + this.getTransform().scale.y + this.renderGroup.getTransform().scale.y;
+        return true;
     }
 
+    /**
+     * @param x the X world coordinate
+     * @param y the Y world coordinate
+     * @return true if the point is in the Button bounds
+     */
+    boolean contains(float x, float y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Check if the user click on the Buttons of the current Scene
+     * Only the Buttons under the cursor are tested
+     */
     public static void checkClickAll() {
-        for (Button button : buttonsList) {
-            button.checkButtonClick();
-        }
+        Scene scene = SceneManager.getCurrentScene();
+        if (scene == null) return;
+
+        Vector2fc cursor = scene.getCamera().getCursorWorldPos();
+        scene.getWidgetGrid().updateClick(cursor.x(), cursor.y(), MouseListener.isButtonPressed(0));
     }
 
+    /**
+     * Check if the user hover the Buttons of the current Scene
+     * Only the Buttons under the cursor are tested
+     */
     public static void checkHoverAll() {
-        for (Button button : buttonsList) {
-            button.checkButtonHover();
-        }
+        Scene scene = SceneManager.getCurrentScene();
+        if (scene == null) return;
+
+        Vector2fc cursor = scene.getCamera().getCursorWorldPos();
+        scene.getWidgetGrid().updateHover(cursor.x(), cursor.y());
     }
 
     /**
@@ -171,6 +224,10 @@ public class Button extends Surface {
      * Remove this button
      */
     public void remove() {
-        buttonsList.remove(this);
+        super.remove();
+        pendingGrid = null;
+        if (grid != null) {
+            grid.remove(this);
+        }
     }
 }
\ No newline at end of file
@@ -380,6 +380,7 @@ public class Label extends Component {
         this.transform.scale = scale;
         this.textRenderer = new TextRenderer(this, 0);
         this.textRenderer.init();
+        register();
     }
 
     /**
@@ -398,13 +399,25 @@ public class Label extends Component {
         this.transform.scale = scale;
         this.textRenderer = new TextRenderer(this, zindex);
         this.textRenderer.init();
+        register();
+    }
+
+    /**
+     * Add the TextRenderer to the RendererHelper of the Scene if the RenderGroup is already rendered
+     */
+    private void register() {
+        if (renderGroup != null && renderGroup.getScene() != null) {
+            renderGroup.getScene().getRendererHelper().addLabel(this);
+        }
+    }
+
+    @Override
+    public boolean isParallelSafe() {
+        return true;
     }
 
     @Override
     public void update(double dt) {
-        if (this.textRenderer != null) {
-            this.textRenderer.render();
-        }
         if (!this.lastTransform.equals(this.transform)) {
             this.lastTransform = this.transform.copy();
             dirty = true;
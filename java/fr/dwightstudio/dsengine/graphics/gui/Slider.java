@@ -13,6 +13,7 @@ import fr.dwightstudio.dsengine.graphics.objects.Color;
 import fr.dwightstudio.dsengine.graphics.primitives.Surface;
 import fr.dwightstudio.dsengine.inputs.MouseListener;
 import org.joml.Vector2f;
+import org.joml.Vector2fc;
 
 public class Slider extends Surface {
 
@@ -70,12 +71,18 @@ public class Slider extends Surface {
         renderGroup.addComponent(sliderPoint);
     }
 
+    @Override
+    public boolean isParallelSafe() {
+        return false; // Reads the shared cursor position and moves the sliderPoint
+    }
+
     @Override
     public void update(double dt) {
         super.update(dt);
+        Vector2fc cursor = MouseListener.getWorldCursorPos();
         if (MouseListener.isButtonPressed(0)) {
-            if (MouseListener.getOrthoCursorPos().x >= this.getTransform().position.x + this.renderGroup.getTransform().position.x && MouseListener.getOrthoCursorPos().x <= this.getTransform().position.x + this.renderGroup.getTransform().position.x + this.getTransform().scale.x + this.renderGroup.getTransform().scale.x) {
-                if (MouseListener.getOrthoCursorPos().y >= this.getTransform().position.y + this.renderGroup.getTransform().position.y && MouseListener.getOrthoCursorPos().y <= this.getTransform().position.y + this.renderGroup.getTransform().position.y + this.getTransform().scale.y + this.renderGroup.getTransform().scale.y) {
+            if (cursor.x() >= this.getTransform().position.x + this.renderGroup.getTransform().position.x && cursor.x() <= this.getTransform().position.x + this.renderGroup.getTransform().position.x + this.getTransform().scale.x + this.renderGroup.getTransform().scale.x) {
+                if (cursor.y() >= this.getTransform().position.y + this.renderGroup.getTransform().position.y && cursor.y() <= this.getTransform().position.y + this.renderGroup.getTransform().position.y + this.getTransform().scale.y + this.renderGroup.getTransform().scale.y) {
                     selected = true;
                 }
             }
@@ -87,11 +94,11 @@ public class Slider extends Surface {
         if (selected) {
             if (orientation == Engine.GUI.HORIZONTAL) {
                 if (sliderPoint.getTransform().position.x + sliderPoint.getTransform().scale.x / 2 >= this.getTransform().position.x) {
-                    sliderPoint.getTransform().position.x = MouseListener.getOrthoCursorPos().x - (sliderPoint.getTransform().scale.x / 2);
+                    sliderPoint.getTransform().position.x = cursor.x() - (sliderPoint.getTransform().scale.x / 2);
                 }
             } else if (orientation == Engine.GUI.VERTICAL) {
                 if (sliderPoint.getTransform().position.y + sliderPoint.getTransform().scale.y / 2 >= this.getTransform().position.y) {
-                    sliderPoint.getTransform().position.y = MouseListener.getOrthoCursorPos().y - (sliderPoint.getTransform().scale.y / 2);
+                    sliderPoint.getTransform().position.y = cursor.y() - (sliderPoint.getTransform().scale.y / 2);
                 }
             }
         }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Spatial index of the Buttons of a Scene, used to find the Buttons under the cursor
+ *
+ * The world is split in square cells hashed into a fixed number of buckets, a Button is stored in the bucket of every
+ * cell its bounds overlap. The Buttons report their bounds changes during their update and the index is refreshed on
+ * the main thread before each query.
+ */
+public class WidgetGrid {
+    private static final int BUCKETS = 1024;
+    private static final int BUCKET_MASK = BUCKETS - 1;
+    // Buttons overlapping more cells than this are tested for every query instead
+    private static final int MAX_CELLS = 64;
+
+    private final float cellSize;
+    private final List<List<Button>> buckets = new ArrayList<>(BUCKETS);
+    private final List<Button> oversized = new ArrayList<>();
+    private final Queue<Button> pending = new ConcurrentLinkedQueue<>();
+
+    private final List<Button> hits = new ArrayList<>();
+    private final List<Button> hovered = new ArrayList<>();
+    private final List<Button> clicked = new ArrayList<>();
+    private int size;
+
+    /**
+     * Create a new WidgetGrid with cells of 64 units
+     */
+    public WidgetGrid() {
+        this(64.0f);
+    }
+
+    /**
+     * Create a new WidgetGrid
+     *
+     * @param cellSize the size of a cell in world units
+     */
+    public WidgetGrid(float cellSize) {
+        this.cellSize = cellSize;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.add(new ArrayList<>(2));
+        }
+    }
+
+    /**
+     * Ask for a Button to be (re)indexed at the next query, can be called from any thread
+     *
+     * @param button the Button
+     */
+    void markDirty(Button button) {
+        if (button.indexQueued.compareAndSet(false, true)) {
+            button.pendingGrid = this;
+            pending.add(button);
+        }
+    }
+
+    /**
+     * Remove a Button from the index
+     *
+     * @param button the Button
+     */
+    void remove(Button button) {
+        if (button.grid != this) return;
+
+        unlink(button);
+        hovered.remove(button);
+        clicked.remove(button);
+        button.grid = null;
+        size--;
+    }
+
+    /**
+     * Update the hover state of the Buttons after a cursor move
+     *
+     * @param x the cursor X world coordinate
+     * @param y the cursor Y world coordinate
+     */
+    void updateHover(float x, float y) {
+        collect(x, y);
+        for (int i = hovered.size() - 1; i >= 0; i--) {
+            Button button = hovered.get(i);
+            if (!hits.contains(button)) {
+                hovered.remove(i);
+                button.setHover(false);
+            }
+        }
+        for (Button button : hits) {
+            if (!hovered.contains(button)) {
+                hovered.add(button);
+            }
+            button.setHover(true);
+        }
+    }
+
+    /**
+     * Update the click state of the Buttons after a mouse button change
+     *
+     * @param x the cursor X world coordinate
+     * @param y the cursor Y world coordinate
+     * @param pressed if the left mouse button is pressed
+     */
+    void updateClick(float x, float y, boolean pressed) {
+        if (pressed) {
+            collect(x, y);
+        } else {
+            hits.clear();
+        }
+        for (int i = clicked.size() - 1; i >= 0; i--) {
+            Button button = clicked.get(i);
+            if (!hits.contains(button)) {
+                clicked.remove(i);
+                button.setClicked(false);
+            }
+        }
+        for (Button button : hits) {
+            if (!clicked.contains(button)) {
+                clicked.add(button);
+            }
+            button.setClicked(true);
+        }
+    }
+
+    /**
+     * @return the number of indexed Buttons
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Refresh the index and put the Buttons containing a point in the hits list
+     */
+    private void collect(float x, float y) {
+        flush();
+        hits.clear();
+        for (Button button : buckets.get(bucket(cell(x), cell(y)))) {
+            if (button.contains(x, y)) {
+                hits.add(button);
+            }
+        }
+        for (Button button : oversized) {
+            if (button.contains(x, y)) {
+                hits.add(button);
+            }
+        }
+    }
+
+    /**
+     * Index the Buttons whose bounds have changed
+     */
+    private void flush() {
+        Button button;
+        while ((button = pending.poll()) != null) {
+            button.indexQueued.set(false);
+            if (button.pendingGrid != this) continue;
+
+            if (button.grid != this) {
+                if (button.grid != null) {
+                    button.grid.remove(button);
+                }
+                button.grid = this;
+                button.computeBounds();
+                link(button);
+                size++;
+            } else if (button.computeBounds()) {
+                unlink(button);
+                link(button);
+            }
+        }
+    }
+
+    private void link(Button button) {
+        button.cellMinX = cell(button.minX);
+        button.cellMinY = cell(button.minY);
+        button.cellMaxX = cell(button.maxX);
+        button.cellMaxY = cell(button.maxY);
+        long cells = (long) (button.cellMaxX - button.cellMinX + 1) * (button.cellMaxY - button.cellMinY + 1);
+        if (cells > MAX_CELLS) {
+            oversized.add(button);
+            return;
+        }
+
+        for (int cx = button.cellMinX; cx <= button.cellMaxX; cx++) {
+            for (int cy = button.cellMinY; cy <= button.cellMaxY; cy++) {
+                List<Button> bucket = buckets.get(bucket(cx, cy));
+                // Several cells can share a bucket, a Button is only stored once per bucket
+                if (!bucket.contains(button)) {
+                    bucket.add(button);
+                }
+            }
+        }
+    }
+
+    private void unlink(Button button) {
+        long cells = (long) (button.cellMaxX - button.cellMinX + 1) * (button.cellMaxY - button.cellMinY + 1);
+        if (cells > MAX_CELLS) {
+            oversized.remove(button);
+            return;
+        }
+
+        for (int cx = button.cellMinX; cx <= button.cellMaxX; cx++) {
+            for (int cy = button.cellMinY; cy <= button.cellMaxY; cy++) {
+                buckets.get(bucket(cx, cy)).remove(button);
+            }
+        }
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static int bucket(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & BUCKET_MASK;
+    }
+}
@@ -9,9 +9,11 @@
 package fr.dwightstudio.dsengine.graphics.objects;
 
 import fr.dwightstudio.dsengine.graphics.GLFWWindow;
+import fr.dwightstudio.dsengine.inputs.MouseListener;
 import fr.dwightstudio.dsengine.logging.GameLogger;
 import org.joml.Matrix4f;
 import org.joml.Vector2f;
+import org.joml.Vector2fc;
 import org.joml.Vector3f;
 
 import java.text.MessageFormat;
@@ -21,6 +23,15 @@ public class Camera {
     private final Matrix4f viewMatrix;
     private final Matrix4f inverseProjectionMatrix;
     private final Matrix4f inverseViewMatrix;
+    private final Matrix4f inverseViewProjectionMatrix = new Matrix4f();
+    private final Vector2f lastPosition = new Vector2f(Float.NaN, Float.NaN);
+    private int matrixVersion = 0;
+    private int inverseVersion = -1;
+
+    // World cursor cache
+    private final Vector2f cursorWorldPos = new Vector2f();
+    private int cursorMatrixVersion = -1;
+    private int cursorVersion = -1;
 
     public final Vector2f position;
     private final Vector2f zoom;
@@ -57,20 +68,78 @@ public class Camera {
         projectionMatrix.ortho(0.0f, GLFWWindow.getWidth(), 0.0f, GLFWWindow.getHeight(), 0.0f, 100.0f);
         projectionMatrix.scale(zoom.x, zoom.y, 1.0f);
         projectionMatrix.invert(inverseProjectionMatrix);
+        matrixVersion++;
     }
 
     /**
      * @return the view matrix
      */
     public Matrix4f getViewMatrix() {
-        this.cameraFront = new Vector3f(0.0f, 0.0f, -1.0f); // Reset
-        this.cameraUp = new Vector3f(0.0f, 1.0f, 0.0f); // Reset
+        updateView();
+        return this.viewMatrix;
+    }
+
+    /**
+     * Get the version of the matrices, it changes every time the projection or the view matrix is rebuilt
+     *
+     * @return the version of the matrices
+     */
+    public int getMatrixVersion() {
+        updateView();
+        return matrixVersion;
+    }
+
+    /**
+     * Rebuild the view matrix if the camera has moved since the last call
+     */
+    private void updateView() {
+        if (lastPosition.equals(position)) return;
+
+        lastPosition.set(position);
         this.viewMatrix.identity(); // Reset the wiew Matrix
-        viewMatrix.lookAt(new Vector3f(position.x, position.y, 0.0f), // We are forced to use Vector3 here even if the z is unused
-                          this.cameraFront.add(position.x, position.y, 0.0f), // The point were the camera look at. By default : 0, 0, -1
-                          this.cameraUp);
+        viewMatrix.lookAt(position.x, position.y, 0.0f, // The z is unused
+                          position.x + cameraFront.x, position.y + cameraFront.y, cameraFront.z, // The point were the camera look at. By default : 0, 0, -1
+                          cameraUp.x, cameraUp.y, cameraUp.z);
         viewMatrix.invert(inverseViewMatrix);
-        return this.viewMatrix;
+        matrixVersion++;
+    }
+
+    /**
+     * Convert screen coordinates (origin at the bottom left of the window) to world coordinates
+     *
+     * @param screenX the X screen coordinate
+     * @param screenY the Y screen coordinate
+     * @param dest the vector receiving the world coordinates
+     * @return dest
+     */
+    public synchronized Vector2f unproject(float screenX, float screenY, Vector2f dest) {
+        updateView();
+        if (inverseVersion != matrixVersion) {
+            inverseViewMatrix.mul(inverseProjectionMatrix, inverseViewProjectionMatrix);
+            inverseVersion = matrixVersion;
+        }
+
+        float x = (screenX / (float) GLFWWindow.getWidth()) * 2.0f - 1.0f;
+        float y = (screenY / (float) GLFWWindow.getHeight()) * 2.0f - 1.0f;
+        Matrix4f m = inverseViewProjectionMatrix;
+        return dest.set(m.m00() * x + m.m10() * y + m.m30(), m.m01() * x + m.m11() * y + m.m31());
+    }
+
+    /**
+     * Get the cursor world coordinates
+     * They are only computed again when the cursor or the camera has moved, the returned vector is shared
+     *
+     * @return the cursor world coordinates
+     */
+    public synchronized Vector2fc getCursorWorldPos() {
+        updateView();
+        int version = MouseListener.getCursorVersion();
+        if (cursorVersion != version || cursorMatrixVersion != matrixVersion) {
+            unproject(MouseListener.getCursorX(), MouseListener.getCursorY(), cursorWorldPos);
+            cursorVersion = version;
+            cursorMatrixVersion = matrixVersion;
+        }
+        return cursorWorldPos;
     }
 
     /**
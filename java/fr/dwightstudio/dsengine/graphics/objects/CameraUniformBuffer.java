@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.objects;
+
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+
+public class CameraUniformBuffer {
+    // Shaders declare the camera matrices in this std140 block:
+    //
+    // layout (std140) uniform Camera {
+    //     mat4 uProjectionMatrix;
+    //     mat4 uViewMatrix;
+    // };
+    public static final String BLOCK_NAME = "Camera";
+    public static final int BINDING = 0;
+
+    private static final int SIZE = 2 * 16; // Two mat4, no padding needed with std140
+
+    private static final FloatBuffer data = BufferUtils.createFloatBuffer(SIZE);
+    private static int bufferObjectID = 0;
+    private static Camera uploadedCamera;
+    private static int uploadedVersion;
+    private static int uploadCount = 0;
+
+    /**
+     * Upload the matrices of a Camera if they are not the ones already in the buffer
+     * The buffer is created and bound to the binding point the first time
+     *
+     * @param camera a Camera
+     */
+    public static void update(Camera camera) {
+        int version = camera.getMatrixVersion();
+        if (bufferObjectID != 0 && camera == uploadedCamera && version == uploadedVersion) {
+            return;
+        }
+
+        if (bufferObjectID == 0) {
+            bufferObjectID = glGenBuffers();
+            GLState.bindBuffer(GL_UNIFORM_BUFFER, bufferObjectID);
+            glBufferData(GL_UNIFORM_BUFFER, (long) SIZE * Float.BYTES, GL_DYNAMIC_DRAW);
+            glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, bufferObjectID); // Also binds it to GL_UNIFORM_BUFFER
+        } else {
+            GLState.bindBuffer(GL_UNIFORM_BUFFER, bufferObjectID);
+        }
+
+        camera.getProjectionMatrix().get(0, data);
+        camera.getViewMatrix().get(16, data);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+
+        uploadedCamera = camera;
+        uploadedVersion = version;
+        uploadCount++;
+    }
+
+    /**
+     * @return the number of times the matrices have been uploaded
+     */
+    public static int getUploadCount() {
+        return uploadCount;
+    }
+
+    /**
+     * Delete the buffer
+     */
+    public static void delete() {
+        if (bufferObjectID != 0) {
+            GLState.deleteBuffer(bufferObjectID);
+            bufferObjectID = 0;
+            uploadedCamera = null;
+        }
+    }
+}
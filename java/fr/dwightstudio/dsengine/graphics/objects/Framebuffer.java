@@ -10,6 +10,7 @@ package fr.dwightstudio.dsengine.graphics.objects;
 
 import fr.dwightstudio.dsengine.graphics.GLFWWindow;
 import fr.dwightstudio.dsengine.graphics.utils.FramebufferManager;
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
 import fr.dwightstudio.dsengine.logging.GameLogger;
 import fr.dwightstudio.dsengine.resources.ResourceManager;
 import fr.dwightstudio.dsengine.scripting.Component;
@@ -64,7 +65,7 @@ public class Framebuffer extends Component {
         glBindFramebuffer(GL_FRAMEBUFFER, frameBufferObjectID);
 
         textureID = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureID);
+        GLState.bindTexture(GL_TEXTURE_2D, textureID);
         glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, baseWidth, baseHeight, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0);
         glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
         glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
@@ -101,10 +102,10 @@ public class Framebuffer extends Component {
                 renderWidth,  renderHeight, 1.0f, 1.0f
         };
         frambufferVertexArrayObjectID = glGenVertexArrays();
-        glBindVertexArray(frambufferVertexArrayObjectID);
+        GLState.bindVertexArray(frambufferVertexArrayObjectID);
 
         int vertexBufferObjectID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObjectID);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vertexBufferObjectID);
         glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
 
         glVertexAttribPointer(0, 2, GL_FLOAT, false, 4 * Float.BYTES, 0);
@@ -123,12 +124,9 @@ public class Framebuffer extends Component {
      */
     public void render() {
         shader.bind();
-        glBindVertexArray(frambufferVertexArrayObjectID);
-        glActiveTexture(GL_TEXTURE9);
-        glBindTexture(GL_TEXTURE_2D, textureID);
+        GLState.bindVertexArray(frambufferVertexArrayObjectID);
+        GLState.bindTexture(9, GL_TEXTURE_2D, textureID);
         glDrawArrays(GL_TRIANGLES, 0, 6);
-
-        glBindVertexArray(0);
         shader.unbind();
     }
 
@@ -154,7 +152,7 @@ public class Framebuffer extends Component {
      * Bind the Framebuffer object
      */
     public void bind() {
-        glBindTexture(GL_TEXTURE_2D, 0);
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
         glBindFramebuffer(GL_FRAMEBUFFER, frameBufferObjectID);
         glViewport(0, 0, baseWidth, baseHeight);
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
@@ -173,7 +171,7 @@ public class Framebuffer extends Component {
      */
     public void delete() {
         glDeleteFramebuffers(frameBufferObjectID);
-        glDeleteTextures(textureID);
+        GLState.deleteTexture(textureID);
         glDeleteRenderbuffers(renderBufferID);
     }
 
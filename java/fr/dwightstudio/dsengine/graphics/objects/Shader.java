@@ -8,17 +8,26 @@
 
 package fr.dwightstudio.dsengine.graphics.objects;
 
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
 import org.joml.*;
 import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryStack;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.*;
 
 public class Shader {
 
     private final int programID;
-    private boolean isInUse = false;
+    private Camera uploadedCamera;
+    private int uploadedCameraVersion;
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
+    private final boolean usingCameraBlock;
     FloatBuffer mat4fvBuffer = BufferUtils.createFloatBuffer(16);
     FloatBuffer mat3fvBuffer = BufferUtils.createFloatBuffer(9);
 
@@ -29,25 +38,76 @@ public class Shader {
      */
     public Shader(int programID) {
         this.programID = programID;
+        cacheUniformLocations();
+        this.usingCameraBlock = bindCameraBlock();
+    }
+
+    /**
+     * Store the location of every active uniform of the linked program
+     * Arrays are stored under both their name and their first element name (e.g. "uTextures" and "uTextures[0]")
+     */
+    private void cacheUniformLocations() {
+        int count = glGetProgrami(programID, GL_ACTIVE_UNIFORMS);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer size = stack.mallocInt(1);
+            IntBuffer type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                String name = glGetActiveUniform(programID, i, size, type);
+                int location = glGetUniformLocation(programID, name);
+                if (location < 0) {
+                    continue; // Member of a uniform block
+                }
+                uniformLocations.put(name, location);
+                if (name.endsWith("[0]")) {
+                    uniformLocations.put(name.substring(0, name.length() - 3), location);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bind the camera uniform block of the program to the CameraUniformBuffer binding point
+     *
+     * @return true if the program declares the camera uniform block
+     */
+    private boolean bindCameraBlock() {
+        int blockIndex = glGetUniformBlockIndex(programID, CameraUniformBuffer.BLOCK_NAME);
+        if (blockIndex == GL_INVALID_INDEX) {
+            return false;
+        }
+        glUniformBlockBinding(programID, blockIndex, CameraUniformBuffer.BINDING);
+        return true;
+    }
+
+    /**
+     * Get the location of a uniform from the cache
+     * Names which are not active uniforms are looked up once and cached too
+     *
+     * @param varName the variable name
+     * @return the location of the uniform (-1 if the program has no such uniform)
+     */
+    public int getUniformLocation(String varName) {
+        Integer location = uniformLocations.get(varName);
+        if (location == null) {
+            location = glGetUniformLocation(programID, varName);
+            uniformLocations.put(varName, location);
+        }
+        return location;
     }
 
     /**
      * Bind the shader to use it
      */
     public void bind() {
-        if (!isInUse) {
-            glUseProgram(programID);
-            isInUse = true;
-        }
+        GLState.useProgram(programID);
     }
 
     /**
      * Unbind the shader
      */
     public void unbind() {
-        if (isInUse) {
-            glUseProgram(0);
-            isInUse = false;
+        if (isInUse()) {
+            GLState.useProgram(0);
         }
     }
 
@@ -62,7 +122,7 @@ public class Shader {
      * @return is the shader is in use
      */
     public boolean isInUse() {
-        return isInUse;
+        return GLState.getProgram() == programID;
     }
 
     /**
@@ -80,7 +140,30 @@ public class Shader {
         mat4fvBuffer.clear();
         mat4.get(mat4fvBuffer);
         bind();
-        glUniformMatrix4fv(glGetUniformLocation(programID, varName), false, mat4fvBuffer);
+        glUniformMatrix4fv(getUniformLocation(varName), false, mat4fvBuffer);
+    }
+
+    /**
+     * Upload the projection and view matrices of a Camera to uProjectionMatrix and uViewMatrix
+     * Nothing is uploaded if this Camera was the last one uploaded and has not changed since
+     * Shaders declaring the camera uniform block read the shared CameraUniformBuffer instead
+     *
+     * @param camera a Camera
+     */
+    public void uploadCamera(Camera camera) {
+        if (usingCameraBlock) {
+            CameraUniformBuffer.update(camera);
+            return;
+        }
+
+        int version = camera.getMatrixVersion();
+        if (camera == uploadedCamera && version == uploadedCameraVersion) {
+            return;
+        }
+        uploadMat4f("uProjectionMatrix", camera.getProjectionMatrix());
+        uploadMat4f("uViewMatrix", camera.getViewMatrix());
+        uploadedCamera = camera;
+        uploadedCameraVersion = version;
     }
 
     /**
@@ -98,7 +181,7 @@ public class Shader {
         mat3fvBuffer.clear();
         mat3.get(mat3fvBuffer);
         bind();
-        glUniformMatrix3fv(glGetUniformLocation(programID, varName), false, mat3fvBuffer);
+        glUniformMatrix3fv(getUniformLocation(varName), false, mat3fvBuffer);
     }
 
     /**
@@ -109,7 +192,7 @@ public class Shader {
      */
     public void uploadBoolean(String varName, boolean bool) {
         bind();
-        glUniform1i(glGetUniformLocation(programID, varName), (bool) ? 1 : 0);
+        glUniform1i(getUniformLocation(varName), (bool) ? 1 : 0);
     }
 
     /**
@@ -120,7 +203,7 @@ public class Shader {
      */
     public void uploadInt(String varName, int val) {
         bind();
-        glUniform1i(glGetUniformLocation(programID, varName), val);
+        glUniform1i(getUniformLocation(varName), val);
     }
 
     /**
@@ -131,7 +214,7 @@ public class Shader {
      */
     public void uploadFloat(String varName, float val) {
         bind();
-        glUniform1f(glGetUniformLocation(programID, varName), val);
+        glUniform1f(getUniformLocation(varName), val);
     }
 
     /**
@@ -142,7 +225,7 @@ public class Shader {
      */
     public void uploadVec4f(String varName, Vector4f vec4f) {
         bind();
-        glUniform4f(glGetUniformLocation(programID, varName), vec4f.x, vec4f.y, vec4f.z, vec4f.w);
+        glUniform4f(getUniformLocation(varName), vec4f.x, vec4f.y, vec4f.z, vec4f.w);
     }
 
     /**
@@ -153,7 +236,7 @@ public class Shader {
      */
     public void uploadVec3f(String varName, Vector3f vec3f) {
         bind();
-        glUniform3f(glGetUniformLocation(programID, varName), vec3f.x, vec3f.y, vec3f.z);
+        glUniform3f(getUniformLocation(varName), vec3f.x, vec3f.y, vec3f.z);
     }
 
     /**
@@ -164,7 +247,7 @@ public class Shader {
      */
     public void uploadVec2f(String varName, Vector2f vec2f) {
         bind();
-        glUniform2f(glGetUniformLocation(programID, varName), vec2f.x, vec2f.y);
+        glUniform2f(getUniformLocation(varName), vec2f.x, vec2f.y);
     }
 
     /**
@@ -175,7 +258,7 @@ public class Shader {
      */
     public void uploadIntArray(String varName, int[] array) {
         bind();
-        glUniform1iv(glGetUniformLocation(programID, varName), array);
+        glUniform1iv(getUniformLocation(varName), array);
     }
 
     /**
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.objects;
+
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
+import fr.dwightstudio.dsengine.logging.GameLogger;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.text.MessageFormat;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL44.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+public class StreamingBuffer {
+    // Streaming modes
+    public static final int ORPHANING = 0;
+    public static final int PERSISTENT = 1;
+
+    // Number of regions of a persistent buffer, the GPU can read two of them while the third one is written
+    private static final int REGIONS = 3;
+
+    private static boolean persistentMappingAllowed = true;
+
+    private final int capacity;
+    private final FloatBuffer data;
+    private final long dataAddress;
+
+    private int mode;
+    private int bufferObjectID;
+    private long mappedAddress;
+    private final long[] fences = new long[REGIONS];
+    private int region;
+
+    // Spans each region has not received yet, a region which fell too far behind is copied whole
+    private final int[][] regionSpans = new int[REGIONS][16];
+    private final int[] regionSpanCount = new int[REGIONS];
+    private final int[] regionFloats = new int[REGIONS];
+    private final boolean[] regionFull = new boolean[REGIONS];
+
+    private int[] pendingSpans = new int[16];
+    private int pendingCount;
+    private int pendingFloats;
+    private long uploadedBytes;
+
+    /**
+     * Create a new StreamingBuffer
+     * The vertices are written into an off-heap buffer which is sent to the GPU without any intermediate copy
+     *
+     * @param capacity the number of floats of the buffer
+     */
+    public StreamingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.data = memCallocFloat(capacity);
+        this.dataAddress = memAddress(data);
+    }
+
+    /**
+     * Allow or forbid persistent mapping for the StreamingBuffers initialized from now on
+     *
+     * @param allowed false to always use buffer orphaning
+     */
+    public static void setPersistentMappingAllowed(boolean allowed) {
+        persistentMappingAllowed = allowed;
+    }
+
+    /**
+     * Allocate the GPU buffer and bind it to GL_ARRAY_BUFFER
+     * Persistent mapping is used when OpenGL 4.4 is available, buffer orphaning otherwise
+     */
+    public void init() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        bufferObjectID = glGenBuffers();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
+
+        if (persistentMappingAllowed && capabilities.OpenGL44) {
+            int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            long size = (long) capacity * Float.BYTES * REGIONS;
+            glBufferStorage(GL_ARRAY_BUFFER, size, flags);
+            ByteBuffer mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0, size, flags);
+            if (mapped != null) {
+                mode = PERSISTENT;
+                mappedAddress = memAddress(mapped);
+                for (int i = 0; i < REGIONS; i++) {
+                    memCopy(dataAddress, mappedAddress + (long) i * capacity * Float.BYTES, (long) capacity * Float.BYTES);
+                }
+                return;
+            }
+
+            // Immutable storage cannot be reallocated, start again with a new buffer
+            GameLogger.getLogger("StreamingBuffer").warn("Persistent mapping failed, falling back to buffer orphaning");
+            GLState.deleteBuffer(bufferObjectID);
+            bufferObjectID = glGenBuffers();
+            GLState.bindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
+        }
+
+        mode = ORPHANING;
+        nglBufferData(GL_ARRAY_BUFFER, (long) capacity * Float.BYTES, dataAddress, GL_STREAM_DRAW);
+    }
+
+    /**
+     * @return the off-heap data of the buffer, write into it with absolute puts then call markDirty()
+     */
+    public FloatBuffer getData() {
+        return data;
+    }
+
+    /**
+     * Mark a range of floats as modified, it will be sent to the GPU on the next commit
+     *
+     * @param offset the index of the first float
+     * @param length the number of floats
+     */
+    public void markDirty(int offset, int length) {
+        if (pendingCount == pendingSpans.length) {
+            int[] spans = new int[pendingSpans.length * 2];
+            System.arraycopy(pendingSpans, 0, spans, 0, pendingCount);
+            pendingSpans = spans;
+        }
+        pendingSpans[pendingCount++] = offset;
+        pendingSpans[pendingCount++] = length;
+        pendingFloats += length;
+
+        if (mode == PERSISTENT) {
+            for (int i = 0; i < REGIONS; i++) {
+                addRegionSpan(i, offset, length);
+            }
+        }
+    }
+
+    /**
+     * Remember a span that a region has to receive on its next commit
+     *
+     * @param index the index of the region
+     * @param offset the index of the first float
+     * @param length the number of floats
+     */
+    private void addRegionSpan(int index, int offset, int length) {
+        if (regionFull[index]) {
+            return;
+        }
+        regionFloats[index] += length;
+        if (regionFloats[index] >= capacity) {
+            regionFull[index] = true;
+            regionSpanCount[index] = 0;
+            return;
+        }
+
+        int[] spans = regionSpans[index];
+        int count = regionSpanCount[index];
+        if (count > 0 && spans[count - 2] + spans[count - 1] >= offset && spans[count - 2] <= offset) {
+            // Extends the previous span (the same data is often marked again on the next frame)
+            spans[count - 1] = Math.max(spans[count - 1], offset + length - spans[count - 2]);
+            return;
+        }
+        if (count == spans.length) {
+            spans = new int[spans.length * 2];
+            System.arraycopy(regionSpans[index], 0, spans, 0, count);
+            regionSpans[index] = spans;
+        }
+        spans[count] = offset;
+        spans[count + 1] = length;
+        regionSpanCount[index] = count + 2;
+    }
+
+    /**
+     * Send the modified ranges to the GPU
+     * This must be called once per frame before drawing, the buffer is left bound to GL_ARRAY_BUFFER if
+     * anything was sent
+     *
+     * @param used the number of floats the next draw call will read
+     */
+    public void commit(int used) {
+        uploadedBytes = 0;
+        if (pendingCount == 0) {
+            return;
+        }
+
+        if (mode == PERSISTENT) {
+            // The next region may still be read by the GPU, wait for it before writing
+            region = (region + 1) % REGIONS;
+            waitFence(region);
+            // Only the spans modified since this region was last written are copied into it
+            long regionAddress = mappedAddress + (long) region * capacity * Float.BYTES;
+            if (regionFull[region]) {
+                long bytes = (long) capacity * Float.BYTES;
+                memCopy(dataAddress, regionAddress, bytes);
+                uploadedBytes = bytes;
+            } else {
+                int[] spans = regionSpans[region];
+                for (int i = 0; i < regionSpanCount[region]; i += 2) {
+                    long offset = (long) spans[i] * Float.BYTES;
+                    long length = (long) spans[i + 1] * Float.BYTES;
+                    memCopy(dataAddress + offset, regionAddress + offset, length);
+                    uploadedBytes += length;
+                }
+            }
+            regionSpanCount[region] = 0;
+            regionFloats[region] = 0;
+            regionFull[region] = false;
+        } else {
+            GLState.bindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
+            if (pendingFloats * 2 >= used) {
+                // Most of the buffer changed, let the driver give us a fresh storage instead of waiting for the GPU
+                nglBufferData(GL_ARRAY_BUFFER, (long) capacity * Float.BYTES, NULL, GL_STREAM_DRAW);
+                nglBufferSubData(GL_ARRAY_BUFFER, 0, (long) used * Float.BYTES, dataAddress);
+                uploadedBytes = (long) used * Float.BYTES;
+            } else {
+                for (int i = 0; i < pendingCount; i += 2) {
+                    long offset = (long) pendingSpans[i] * Float.BYTES;
+                    long length = (long) pendingSpans[i + 1] * Float.BYTES;
+                    nglBufferSubData(GL_ARRAY_BUFFER, offset, length, dataAddress + offset);
+                    uploadedBytes += length;
+                }
+            }
+        }
+        pendingCount = 0;
+        pendingFloats = 0;
+    }
+
+    /**
+     * Protect the current region until the GPU has executed the draw calls issued so far
+     * This must be called after drawing from the buffer, it does nothing when orphaning
+     */
+    public void fence() {
+        if (mode == PERSISTENT) {
+            if (fences[region] != NULL) {
+                glDeleteSync(fences[region]);
+            }
+            fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+    }
+
+    /**
+     * Wait for the GPU to release a region
+     *
+     * @param index the index of the region
+     */
+    private void waitFence(int index) {
+        long fence = fences[index];
+        if (fence == NULL) {
+            return;
+        }
+
+        int result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000L);
+        while (result == GL_TIMEOUT_EXPIRED) {
+            result = glClientWaitSync(fence, 0, 1_000_000L);
+        }
+        if (result == GL_WAIT_FAILED) {
+            GameLogger.getLogger("StreamingBuffer").warn(MessageFormat.format("Failed to wait for the region {0} of the buffer {1}", index, bufferObjectID));
+        }
+        glDeleteSync(fence);
+        fences[index] = NULL;
+    }
+
+    /**
+     * Get the index of the first float to draw from, vertex attributes are set up for the first region so
+     * draw calls must add this offset (as a base vertex or base instance)
+     *
+     * @return the offset in floats of the current region
+     */
+    public int getRegionOffset() {
+        return region * capacity;
+    }
+
+    /**
+     * @return the GPU buffer ID
+     */
+    public int getBufferObjectID() {
+        return bufferObjectID;
+    }
+
+    /**
+     * @return StreamingBuffer.PERSISTENT or StreamingBuffer.ORPHANING
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the number of bytes sent to the GPU by the last commit
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * Delete the GPU buffer and free the off-heap data
+     */
+    public void delete() {
+        for (int i = 0; i < REGIONS; i++) {
+            if (fences[i] != NULL) {
+                glDeleteSync(fences[i]);
+                fences[i] = NULL;
+            }
+        }
+        if (bufferObjectID != 0) {
+            if (mode == PERSISTENT) {
+                GLState.bindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
+                glUnmapBuffer(GL_ARRAY_BUFFER);
+            }
+            GLState.deleteBuffer(bufferObjectID);
+            bufferObjectID = 0;
+        }
+        memFree(data);
+    }
+}
@@ -8,6 +8,8 @@
 
 package fr.dwightstudio.dsengine.graphics.objects;
 
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
+
 import java.nio.ByteBuffer;
 
 import static org.lwjgl.opengl.GL11.*;
@@ -18,6 +20,7 @@ public class Texture {
     private final int id;
     private final int nbChannel;
     private final String filepath;
+    private int filter = 0; // Queried on first use, the filters are only set when the Texture is created
 
     /**
      * Create a new Texture
@@ -40,14 +43,44 @@ public class Texture {
      * Bind the Texture to use it
      */
     public void bind() {
-        glBindTexture(GL_TEXTURE_2D, id);
+        GLState.bindTexture(GL_TEXTURE_2D, id);
+    }
+
+    /**
+     * Bind the Texture to a texture unit
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0)
+     */
+    public void bind(int unit) {
+        GLState.bindTexture(unit, GL_TEXTURE_2D, id);
+    }
+
+    /**
+     * @return the magnification filter of the Texture (GL_NEAREST or GL_LINEAR)
+     */
+    public int getFilter() {
+        if (filter == 0) {
+            bind();
+            filter = glGetTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER);
+            unbind();
+        }
+        return filter;
     }
 
     /**
      * Unbind the Texture
      */
     public void unbind() {
-        glBindTexture(GL_TEXTURE_2D, 0);
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * Unbind the Texture from a texture unit
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0)
+     */
+    public void unbind(int unit) {
+        GLState.bindTexture(unit, GL_TEXTURE_2D, 0);
     }
 
     /**
@@ -89,7 +122,7 @@ public class Texture {
      * Delete the Texture
      */
     public void delete() {
-        glDeleteTextures(id);
+        GLState.deleteTexture(id);
     }
 
     /**
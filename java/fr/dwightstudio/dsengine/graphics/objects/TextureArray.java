@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.objects;
+
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
+import fr.dwightstudio.dsengine.logging.GameLogger;
+import org.lwjgl.opengl.GL;
+
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.glTexImage3D;
+import static org.lwjgl.opengl.GL12.glTexSubImage3D;
+import static org.lwjgl.opengl.GL30.GL_MAX_ARRAY_TEXTURE_LAYERS;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL43.glCopyImageSubData;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+public class TextureArray {
+    // Textures larger than this are kept as standalone Textures
+    public static final int MAX_LAYER_SIZE = 512;
+
+    private static final int INITIAL_LAYERS = 8;
+    private static final int MAX_LAYERS = 256;
+    private static final List<TextureArray> textureArrays = new ArrayList<>();
+
+    private final int width;
+    private final int height;
+    private final int filter;
+    private final int maxLayers;
+    private final List<Texture> layers;
+    private final Map<Integer, Integer> layerIndices; // Texture ID -> layer
+
+    private int id;
+    private int capacity;
+
+    /**
+     * Create a new TextureArray
+     * TextureArrays are created automatically by TextureArray.get()
+     *
+     * @param width the width of every layer
+     * @param height the height of every layer
+     * @param filter GL_NEAREST or GL_LINEAR
+     */
+    private TextureArray(int width, int height, int filter) {
+        this.width = width;
+        this.height = height;
+        this.filter = filter;
+        this.maxLayers = Math.min(MAX_LAYERS, glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS));
+        this.layers = new ArrayList<>();
+        this.layerIndices = new HashMap<>();
+        allocate(Math.min(INITIAL_LAYERS, maxLayers));
+    }
+
+    /**
+     * Check if a Texture can be stored in a TextureArray
+     * Only the Textures loaded from a file are accepted because the copy in the TextureArray is never updated
+     *
+     * @param texture a Texture
+     * @return true if the Texture can be stored in a TextureArray
+     */
+    public static boolean isEligible(Texture texture) {
+        return texture != null && texture.getFilepath() != null
+                && texture.getWidth() <= MAX_LAYER_SIZE && texture.getHeight() <= MAX_LAYER_SIZE;
+    }
+
+    /**
+     * Get the TextureArray containing a Texture, the Texture is added to a compatible TextureArray if needed
+     *
+     * @param texture a Texture
+     * @return the TextureArray containing the Texture, or null if the Texture is not eligible
+     */
+    public static TextureArray get(Texture texture) {
+        if (!isEligible(texture)) {
+            return null;
+        }
+
+        int filter = texture.getFilter();
+        TextureArray compatible = null;
+        for (TextureArray textureArray : textureArrays) {
+            if (textureArray.contains(texture)) {
+                return textureArray;
+            }
+            if (compatible == null && textureArray.accepts(texture, filter)) {
+                compatible = textureArray;
+            }
+        }
+
+        if (compatible == null) {
+            compatible = new TextureArray(texture.getWidth(), texture.getHeight(), filter);
+            textureArrays.add(compatible);
+            GameLogger.getLogger("TextureArray").debug(MessageFormat.format("Created a {0}x{1} TextureArray", texture.getWidth(), texture.getHeight()));
+        }
+        compatible.addTexture(texture);
+        return compatible;
+    }
+
+    /**
+     * Delete every TextureArray
+     */
+    public static void deleteAll() {
+        for (TextureArray textureArray : textureArrays) {
+            GLState.deleteTexture(textureArray.id);
+        }
+        textureArrays.clear();
+    }
+
+    /**
+     * Check if a Texture has room in the TextureArray or is already in it
+     *
+     * @param texture a Texture
+     * @return true if TextureArray.get() would return this TextureArray
+     */
+    public boolean canHold(Texture texture) {
+        return contains(texture) || (isEligible(texture) && accepts(texture, texture.getFilter()));
+    }
+
+    /**
+     * Check if a Texture has the format of the TextureArray and if there is a free layer
+     *
+     * @param texture a Texture
+     * @param filter the filter of the Texture
+     * @return true if the Texture can be added
+     */
+    private boolean accepts(Texture texture, int filter) {
+        return texture.getWidth() == width && texture.getHeight() == height && this.filter == filter && layers.size() < maxLayers;
+    }
+
+    /**
+     * @param texture a Texture
+     * @return true if the Texture is stored in the TextureArray
+     */
+    public boolean contains(Texture texture) {
+        return texture != null && layerIndices.containsKey(texture.getID());
+    }
+
+    /**
+     * Get the layer of a Texture
+     *
+     * @param texture a Texture
+     * @return the layer of the Texture, or -1 if the Texture is not stored in the TextureArray
+     */
+    public int getLayer(Texture texture) {
+        Integer layer = layerIndices.get(texture.getID());
+        return layer == null ? -1 : layer;
+    }
+
+    /**
+     * Add a Texture in a new layer, the TextureArray grows when it is full
+     * The Texture must be accepted by canHold()
+     *
+     * @param texture a Texture
+     * @return the layer of the Texture
+     */
+    public int addTexture(Texture texture) {
+        Integer layer = layerIndices.get(texture.getID());
+        if (layer != null) {
+            return layer;
+        }
+
+        if (layers.size() == capacity) {
+            allocate(Math.min(capacity * 2, maxLayers));
+            for (int i = 0; i < layers.size(); i++) {
+                copy(layers.get(i), i);
+            }
+        }
+        layerIndices.put(texture.getID(), layers.size());
+        layers.add(texture);
+        copy(texture, layers.size() - 1);
+        return layers.size() - 1;
+    }
+
+    /**
+     * Allocate a new storage, the previous one is deleted
+     *
+     * @param layerCount the number of layers
+     */
+    private void allocate(int layerCount) {
+        if (id != 0) {
+            GLState.deleteTexture(id);
+        }
+        capacity = layerCount;
+        id = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, id);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, filter);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, filter);
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA, width, height, capacity, 0, GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * Copy a Texture in a layer of the TextureArray
+     *
+     * @param texture a Texture
+     * @param layer the layer
+     */
+    private void copy(Texture texture, int layer) {
+        if (GL.getCapabilities().OpenGL43) {
+            glCopyImageSubData(texture.getID(), GL_TEXTURE_2D, 0, 0, 0, 0, id, GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1);
+            return;
+        }
+
+        // Older contexts go through the CPU
+        ByteBuffer pixels = memAlloc(width * height * 4);
+        texture.bind();
+        glGetTexImage(GL_TEXTURE_2D, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        texture.unbind();
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, id);
+        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+        memFree(pixels);
+    }
+
+    /**
+     * Bind the TextureArray to use it
+     */
+    public void bind() {
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, id);
+    }
+
+    /**
+     * Bind the TextureArray to a texture unit
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0)
+     */
+    public void bind(int unit) {
+        GLState.bindTexture(unit, GL_TEXTURE_2D_ARRAY, id);
+    }
+
+    /**
+     * Unbind the TextureArray
+     */
+    public void unbind() {
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * Unbind the TextureArray from a texture unit
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0)
+     */
+    public void unbind(int unit) {
+        GLState.bindTexture(unit, GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * @return the width of the layers
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the layers
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of used layers
+     */
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * @return the TextureArray ID
+     */
+    public int getID() {
+        return id;
+    }
+}
@@ -12,6 +12,7 @@ import fr.dwightstudio.dsengine.Engine;
 import fr.dwightstudio.dsengine.graphics.objects.Color;
 import fr.dwightstudio.dsengine.graphics.objects.Texture;
 import fr.dwightstudio.dsengine.graphics.objects.Transform;
+import fr.dwightstudio.dsengine.graphics.renderers.SurfaceRenderer;
 import fr.dwightstudio.dsengine.scripting.Component;
 import org.joml.Vector2f;
 
@@ -26,6 +27,8 @@ public class Surface extends Component {
     private Vector2f[] textureCoords;
 
     private boolean dirty = true;
+    private SurfaceRenderer renderer;
+    private int rendererIndex = -1;
 
     /**
      * Create a new Surface
@@ -86,6 +89,11 @@ public class Surface extends Component {
         };
     }
 
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
     @Override
     public void update(double dt) {
         if (!this.lastTransform.equals(this.transform)) {
@@ -94,6 +102,42 @@ public class Surface extends Component {
         }
     }
 
+    /**
+     * Stop drawing the Surface when it is removed from its RenderGroup
+     */
+    @Override
+    public void remove() {
+        if (renderer != null) {
+            renderer.removeSurface(this);
+        }
+    }
+
+    /**
+     * @return the SurfaceRenderer drawing the Surface (null if it is not drawn)
+     */
+    public SurfaceRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * @return the slot of the Surface in its SurfaceRenderer
+     */
+    public int getRendererIndex() {
+        return rendererIndex;
+    }
+
+    /**
+     * Set the SurfaceRenderer drawing the Surface
+     * This is called by the SurfaceRenderer when the Surface is added, moved or removed
+     *
+     * @param renderer a SurfaceRenderer (null when removed)
+     * @param index the slot of the Surface in the SurfaceRenderer
+     */
+    public void setRenderer(SurfaceRenderer renderer, int index) {
+        this.renderer = renderer;
+        this.rendererIndex = index;
+    }
+
     /**
      * @return the Surface color
      */
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.renderers;
+
+import java.util.Arrays;
+
+class RenderQueue {
+    // The sort key of a renderer looks like this:
+    //
+    // Z level   Pass     Shader    Texture set   Sequence
+    // 16 bits   2 bits   10 bits   20 bits       16 bits
+    //
+    // NOTE: The sequence is the insertion order, it keeps the order of equal states stable
+    private static final int PASS_SHIFT = 46;
+    private static final int SHADER_SHIFT = 36;
+    private static final int TEXTURE_SHIFT = 16;
+
+    private Renderers[] members = new Renderers[16]; // In insertion order
+    private long[] memberKeys = new long[16];
+    private Renderers[] sorted = new Renderers[16];
+    private long[] sortedKeys = new long[16];
+    private Renderers[] swapRenderers = new Renderers[16];
+    private long[] swapKeys = new long[16];
+    private final int[] counts = new int[256];
+
+    private int size;
+    private boolean changed;
+    private int sortCount;
+
+    /**
+     * Add a renderer at the end of the queue
+     *
+     * @param renderer a renderer
+     */
+    void add(Renderers renderer) {
+        if (size == members.length) {
+            int capacity = size * 2;
+            members = Arrays.copyOf(members, capacity);
+            memberKeys = Arrays.copyOf(memberKeys, capacity);
+            sorted = new Renderers[capacity];
+            sortedKeys = new long[capacity];
+            swapRenderers = new Renderers[capacity];
+            swapKeys = new long[capacity];
+        }
+        members[size++] = renderer;
+        changed = true;
+    }
+
+    /**
+     * Remove the renderer at an insertion index
+     *
+     * @param index the insertion index of the renderer
+     */
+    void remove(int index) {
+        System.arraycopy(members, index + 1, members, index, size - index - 1);
+        System.arraycopy(memberKeys, index + 1, memberKeys, index, size - index - 1);
+        members[--size] = null;
+        changed = true;
+    }
+
+    /**
+     * @return the number of renderers
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index an insertion index
+     * @return the renderer at this insertion index
+     */
+    Renderers get(int index) {
+        return members[index];
+    }
+
+    /**
+     * @param index a draw index
+     * @return the renderer at this draw index, valid after sort()
+     */
+    Renderers getSorted(int index) {
+        return sorted[index];
+    }
+
+    /**
+     * Compute the keys and sort the renderers if a renderer was added or removed or if a key changed
+     */
+    void sort() {
+        for (int i = 0; i < size; i++) {
+            long key = computeKey(members[i], i);
+            if (key != memberKeys[i]) {
+                memberKeys[i] = key;
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return;
+        }
+
+        System.arraycopy(members, 0, sorted, 0, size);
+        System.arraycopy(memberKeys, 0, sortedKeys, 0, size);
+        radixSort();
+        changed = false;
+        sortCount++;
+    }
+
+    /**
+     * Sort sorted and sortedKeys with a least significant digit radix sort, one byte per pass
+     * The passes where every key has the same byte are skipped
+     */
+    private void radixSort() {
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (sortedKeys[i] >>> shift) & 0xFF]++;
+            }
+            if (counts[(int) (sortedKeys[0] >>> shift) & 0xFF] == size) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int digit = 0; digit < counts.length; digit++) {
+                int count = counts[digit];
+                counts[digit] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int position = counts[(int) (sortedKeys[i] >>> shift) & 0xFF]++;
+                swapKeys[position] = sortedKeys[i];
+                swapRenderers[position] = sorted[i];
+            }
+
+            long[] keys = sortedKeys;
+            sortedKeys = swapKeys;
+            swapKeys = keys;
+            Renderers[] renderers = sorted;
+            sorted = swapRenderers;
+            swapRenderers = renderers;
+        }
+    }
+
+    /**
+     * Build the sort key of a renderer
+     *
+     * @param renderer a renderer
+     * @param sequence the insertion index of the renderer
+     * @return the sort key
+     */
+    private static long computeKey(Renderers renderer, int sequence) {
+        long zIndex = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, renderer.m_zIndex)) - Short.MIN_VALUE;
+        long pass = renderer.getPass() & 0x3;
+        long shader = renderer.getShader().getProgramID() & 0x3FF;
+        int hash = renderer.getTextureSetHash();
+        long textures = (hash ^ (hash >>> 20)) & 0xFFFFF;
+        return zIndex << 48 | pass << PASS_SHIFT | shader << SHADER_SHIFT | textures << TEXTURE_SHIFT | (sequence & 0xFFFF);
+    }
+
+    /**
+     * @return the number of times the queue has been sorted
+     */
+    int getSortCount() {
+        return sortCount;
+    }
+}
@@ -8,17 +8,34 @@
 
 package fr.dwightstudio.dsengine.graphics.renderers;
 
+import fr.dwightstudio.dsengine.graphics.GLFWWindow;
 import fr.dwightstudio.dsengine.graphics.gui.Label;
+import fr.dwightstudio.dsengine.graphics.objects.Camera;
 import fr.dwightstudio.dsengine.graphics.primitives.Surface;
+import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
 import fr.dwightstudio.dsengine.scripting.RenderGroup;
+import org.joml.Vector2f;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class RendererHelper {
+    // Size in world units of the cells of the culling grid
+    private static final float CULLING_CELL_SIZE = 256.0f;
+
     private int maxBatchSize = 1000;
-    private final List<Renderers> renderers;
+    private int surfaceRenderMode = SurfaceRenderer.BATCHED;
+    private long uploadedBytes = 0;
+    private int stateBinds = 0;
+    private int skippedStateBinds = 0;
+    private int drawnQuads = 0;
+    private int culledQuads = 0;
+    private final RenderQueue renderers;
+    private final Set<RenderGroup> renderGroups = new HashSet<>();
+    private SurfaceGrid grid;
+    private int cullingFrame = 0;
+    private final Vector2f viewCorner = new Vector2f();
 
     /**
      * Create a new RendererHelper
@@ -27,7 +44,8 @@ public class RendererHelper {
      * renderer Surfaces, Lines etc...
      */
     public RendererHelper() {
-        this.renderers = new ArrayList<>();
+        this.renderers = new RenderQueue();
+        this.grid = new SurfaceGrid(CULLING_CELL_SIZE);
     }
 
     /**
@@ -36,6 +54,7 @@ public class RendererHelper {
      * @param renderGroup a RenderGroup
      */
     public void addGameObject(RenderGroup renderGroup) {
+        renderGroups.add(renderGroup);
         List<Surface> surfaces = renderGroup.getComponents(Surface.class);
         for (Surface surface : surfaces) {
             if (surface != null) {
@@ -50,6 +69,18 @@ public class RendererHelper {
         }
     }
 
+    /**
+     * Add the TextRenderer of a Label drawn after its RenderGroup was added
+     * Nothing is done if the RenderGroup has not been added yet, the TextRenderer will be added with it
+     *
+     * @param label a Label
+     */
+    public void addLabel(Label label) {
+        if (label.getTextRenderer() != null && renderGroups.contains(label.renderGroup)) {
+            this.renderers.add(label.getTextRenderer());
+        }
+    }
+
     /**
      * Add a surface to the Renderer
      *
@@ -58,19 +89,24 @@ public class RendererHelper {
      */
     private void add(Surface surface, RenderGroup renderGroup) {
         boolean added = false;
-        for (Renderers renderer : renderers) {
+        for (int i = 0; i < renderers.size(); i++) {
+            Renderers renderer = renderers.get(i);
             if (renderer instanceof SurfaceRenderer) {
                 SurfaceRenderer surfaceRenderer = (SurfaceRenderer) renderer;
-                if (surfaceRenderer.hasRoom() && surfaceRenderer.getzIndex() == renderGroup.getzIndex()) {
+                // A new batch is started when every renderer of the Z level is full or out of texture slots
+                if (surfaceRenderer.hasRoom() && surfaceRenderer.getzIndex() == renderGroup.getzIndex()
+                        && surfaceRenderer.hasTextureRoom(surface.getTexture())) {
                     surfaceRenderer.addSurface(surface);
                     added = true;
+                    break;
                 }
             }
         }
 
         if (!added) {
-            SurfaceRenderer surfaceRenderer = new SurfaceRenderer(maxBatchSize, renderGroup.getzIndex());
+            SurfaceRenderer surfaceRenderer = new SurfaceRenderer(maxBatchSize, renderGroup.getzIndex(), surfaceRenderMode);
             surfaceRenderer.start();
+            surfaceRenderer.setGrid(grid);
             renderers.add(surfaceRenderer);
             surfaceRenderer.addSurface(surface);
         }
@@ -78,12 +114,143 @@ public class RendererHelper {
 
     /**
      * This is called every frame to render all objects contained into every Renderers
+     * The renderers are drawn in the order of their sort key, the shader and the textures are only bound again
+     * when they differ from the ones of the previous renderer, and only unbound once at the end
+     * When culling is enabled, only the Surfaces intersecting the view of the Camera are uploaded and drawn
      */
     public void render() {
-        Collections.sort(renderers);
-        for (Renderers renderer : renderers) {
-            renderer.render();
+        for (int i = renderers.size() - 1; i >= 0; i--) {
+            Renderers renderer = renderers.get(i);
+            if (renderer instanceof SurfaceRenderer) {
+                SurfaceRenderer surfaceRenderer = (SurfaceRenderer) renderer;
+                if (surfaceRenderer.isEmpty()) {
+                    // Every Surface of the batch was removed, its buffers are freed
+                    surfaceRenderer.delete();
+                    renderers.remove(i);
+                } else {
+                    surfaceRenderer.loadSurfaces(); // Updates the bounds in the grid before the query
+                }
+            } else {
+                renderer.prepare();
+            }
+        }
+
+        if (grid != null) {
+            cullingFrame++;
+            queryView();
         }
+
+        uploadedBytes = 0;
+        drawnQuads = 0;
+        culledQuads = 0;
+        for (int i = 0; i < renderers.size(); i++) {
+            Renderers renderer = renderers.get(i);
+            if (renderer instanceof SurfaceRenderer) {
+                SurfaceRenderer surfaceRenderer = (SurfaceRenderer) renderer;
+                if (grid != null) {
+                    surfaceRenderer.cull(cullingFrame);
+                }
+                surfaceRenderer.uploadSurfaces();
+                uploadedBytes += surfaceRenderer.getUploadedBytes();
+                drawnQuads += surfaceRenderer.getVisibleCount();
+                culledQuads += surfaceRenderer.getSurfaceCount() - surfaceRenderer.getVisibleCount();
+            }
+        }
+        renderers.sort();
+
+        stateBinds = 0;
+        skippedStateBinds = 0;
+        Renderers bound = null;
+        for (int i = 0; i < renderers.size(); i++) {
+            Renderers renderer = renderers.getSorted(i);
+            if (renderer instanceof SurfaceRenderer && ((SurfaceRenderer) renderer).getVisibleCount() == 0) {
+                continue; // Every Surface of the batch was culled
+            }
+            if (bound != null && renderer.hasSameState(bound)) {
+                skippedStateBinds++;
+            } else {
+                renderer.bindState(); // Overrides every binding the renderer reads, nothing is unbound before
+                stateBinds++;
+            }
+            renderer.draw();
+            bound = renderer;
+        }
+        if (bound != null) {
+            bound.unbindState();
+        }
+    }
+
+    /**
+     * Show the Surfaces intersecting the rectangle of the world seen by the Camera
+     */
+    private void queryView() {
+        Camera camera = SceneManager.getCurrentScene().getCamera();
+        camera.unproject(0, 0, viewCorner);
+        float x1 = viewCorner.x;
+        float y1 = viewCorner.y;
+        camera.unproject(GLFWWindow.getWidth(), GLFWWindow.getHeight(), viewCorner);
+        float x2 = viewCorner.x;
+        float y2 = viewCorner.y;
+        grid.query(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2), cullingFrame);
+    }
+
+    /**
+     * Enable or disable the culling of the Surfaces outside of the view of the Camera (enabled by default)
+     *
+     * @param enabled false to draw every Surface
+     */
+    public void setCulling(boolean enabled) {
+        if (enabled == (grid != null)) {
+            return;
+        }
+        grid = enabled ? new SurfaceGrid(CULLING_CELL_SIZE) : null;
+        for (int i = 0; i < renderers.size(); i++) {
+            if (renderers.get(i) instanceof SurfaceRenderer) {
+                ((SurfaceRenderer) renderers.get(i)).setGrid(grid);
+            }
+        }
+    }
+
+    /**
+     * @return the number of Surfaces drawn during the last render
+     */
+    public int getDrawnQuads() {
+        return drawnQuads;
+    }
+
+    /**
+     * @return the number of Surfaces skipped during the last render because they were outside of the view
+     */
+    public int getCulledQuads() {
+        return culledQuads;
+    }
+
+    /**
+     * @return the number of times a shader and its textures were bound during the last render
+     */
+    public int getStateBinds() {
+        return stateBinds;
+    }
+
+    /**
+     * @return the number of renderers which reused the state of the previous one during the last render
+     */
+    public int getSkippedStateBinds() {
+        return skippedStateBinds;
+    }
+
+    /**
+     * @return the number of times the renderers have been sorted
+     */
+    public int getSortCount() {
+        return renderers.getSortCount();
+    }
+
+    /**
+     * @return the number of Surface bytes uploaded to the GPU during the last render
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
     }
 
     /**
@@ -94,4 +261,14 @@ public class RendererHelper {
     public void setMaxBatchSize(int batchSize) {
         maxBatchSize = batchSize;
     }
+
+    /**
+     * Change the render mode of the SurfaceRenderers created from now on
+     * The instanced mode uploads one record per Surface instead of 4 vertices, which is better for large scenes
+     *
+     * @param mode SurfaceRenderer.BATCHED (default) or SurfaceRenderer.INSTANCED
+     */
+    public void setSurfaceRenderMode(int mode) {
+        surfaceRenderMode = mode;
+    }
 }
@@ -8,7 +8,56 @@
 
 package fr.dwightstudio.dsengine.graphics.renderers;
 
+import fr.dwightstudio.dsengine.graphics.objects.Shader;
+
 public abstract class Renderers implements Comparable<Renderers> {
+    // Passes drawn in this order inside a Z level
+    static final int SURFACE_PASS = 0;
+    static final int TEXT_PASS = 1;
+
     int m_zIndex;
     abstract void render();
+
+    /**
+     * Reload the modified data and send it to the GPU, this is called before binding the state
+     */
+    abstract void prepare();
+
+    /**
+     * Bind the shader and the textures and upload the uniforms
+     */
+    abstract void bindState();
+
+    /**
+     * Issue the draw call, the state must be bound
+     */
+    abstract void draw();
+
+    /**
+     * Unbind the textures and the shader
+     */
+    abstract void unbindState();
+
+    /**
+     * @return the pass of the renderer in its Z level
+     */
+    abstract int getPass();
+
+    /**
+     * @return the shader of the renderer
+     */
+    abstract Shader getShader();
+
+    /**
+     * @return a hash of the bound textures, equal states must have equal hashes
+     */
+    abstract int getTextureSetHash();
+
+    /**
+     * Check if the state bound by another renderer can be used as is by this one
+     *
+     * @param renderer a renderer
+     * @return true if this renderer would bind the same shader and textures
+     */
+    abstract boolean hasSameState(Renderers renderer);
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.renderers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial hash of the world bounds of the Surfaces of a RendererHelper, used to find the visible Surfaces
+ *
+ * The world is split in square cells, a Surface is stored in every cell its bounds overlap. The SurfaceRenderers
+ * update the bounds of their Surfaces when they are reloaded.
+ */
+class SurfaceGrid {
+    // Surfaces overlapping more cells than this are tested for every query instead
+    private static final int MAX_CELLS = 64;
+
+    private final float cellSize;
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final List<Entry> oversized = new ArrayList<>();
+
+    /**
+     * Position of a Surface in its SurfaceRenderer and in the grid
+     */
+    static class Entry {
+        final long sequence; // Order in which the Surfaces were added to their SurfaceRenderer
+        int slot;
+        float minX, minY, maxX, maxY;
+        int cellMinX, cellMinY, cellMaxX, cellMaxY;
+        boolean linked;
+        int visibleFrame;
+
+        Entry(int slot, long sequence) {
+            this.slot = slot;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Create a new SurfaceGrid
+     *
+     * @param cellSize the size of a cell in world units
+     */
+    SurfaceGrid(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Index an Entry after its bounds changed
+     *
+     * @param entry an Entry
+     */
+    void update(Entry entry) {
+        if (entry.linked && cell(entry.minX) == entry.cellMinX && cell(entry.minY) == entry.cellMinY
+                && cell(entry.maxX) == entry.cellMaxX && cell(entry.maxY) == entry.cellMaxY) {
+            return; // Still in the same cells
+        }
+        remove(entry);
+        link(entry);
+    }
+
+    /**
+     * Remove an Entry from the grid
+     *
+     * @param entry an Entry
+     */
+    void remove(Entry entry) {
+        if (!entry.linked) return;
+
+        entry.linked = false;
+        if (isOversized(entry)) {
+            oversized.remove(entry);
+            return;
+        }
+        for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+            for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+                Long key = key(cx, cy);
+                List<Entry> cell = cells.get(key);
+                if (cell != null && cell.remove(entry) && cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stamp every Entry intersecting a rectangle with the frame number
+     *
+     * @param minX the left of the rectangle
+     * @param minY the bottom of the rectangle
+     * @param maxX the right of the rectangle
+     * @param maxY the top of the rectangle
+     * @param frame the current frame number
+     */
+    void query(float minX, float minY, float maxX, float maxY, int frame) {
+        int cellMinX = cell(minX);
+        int cellMinY = cell(minY);
+        int cellMaxX = cell(maxX);
+        int cellMaxY = cell(maxY);
+
+        long viewCells = (long) (cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1);
+        if (viewCells > cells.size()) {
+            // Zoomed out: walking the occupied cells is cheaper than walking the view
+            for (List<Entry> cell : cells.values()) {
+                visit(cell, minX, minY, maxX, maxY, frame);
+            }
+        } else {
+            for (int cx = cellMinX; cx <= cellMaxX; cx++) {
+                for (int cy = cellMinY; cy <= cellMaxY; cy++) {
+                    List<Entry> cell = cells.get(key(cx, cy));
+                    if (cell != null) {
+                        visit(cell, minX, minY, maxX, maxY, frame);
+                    }
+                }
+            }
+        }
+        visit(oversized, minX, minY, maxX, maxY, frame);
+    }
+
+    private void visit(List<Entry> entries, float minX, float minY, float maxX, float maxY, int frame) {
+        for (Entry entry : entries) {
+            // An Entry can be met in several cells, it is only tested once
+            if (entry.visibleFrame != frame && entry.maxX >= minX && entry.minX <= maxX && entry.maxY >= minY && entry.minY <= maxY) {
+                entry.visibleFrame = frame;
+            }
+        }
+    }
+
+    private void link(Entry entry) {
+        entry.cellMinX = cell(entry.minX);
+        entry.cellMinY = cell(entry.minY);
+        entry.cellMaxX = cell(entry.maxX);
+        entry.cellMaxY = cell(entry.maxY);
+        entry.linked = true;
+        if (isOversized(entry)) {
+            oversized.add(entry);
+            return;
+        }
+        for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+            for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+                cells.computeIfAbsent(key(cx, cy), key -> new ArrayList<>(4)).add(entry);
+            }
+        }
+    }
+
+    private static boolean isOversized(Entry entry) {
+        return (long) (entry.cellMaxX - entry.cellMinX + 1) * (entry.cellMaxY - entry.cellMinY + 1) > MAX_CELLS;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
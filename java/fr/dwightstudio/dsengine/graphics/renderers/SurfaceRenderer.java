@@ -9,22 +9,36 @@
 package fr.dwightstudio.dsengine.graphics.renderers;
 
 import fr.dwightstudio.dsengine.graphics.objects.Shader;
+import fr.dwightstudio.dsengine.graphics.objects.StreamingBuffer;
 import fr.dwightstudio.dsengine.graphics.objects.Texture;
+import fr.dwightstudio.dsengine.graphics.objects.TextureArray;
 import fr.dwightstudio.dsengine.graphics.objects.Transform;
 import fr.dwightstudio.dsengine.graphics.primitives.Surface;
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
 import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
+import fr.dwightstudio.dsengine.logging.GameLogger;
 import fr.dwightstudio.dsengine.resources.ResourceManager;
 import org.jetbrains.annotations.NotNull;
+import org.joml.Vector2f;
 
+import java.nio.FloatBuffer;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL42.glDrawArraysInstancedBaseInstance;
 
 public class SurfaceRenderer extends Renderers {
+    // Render modes
+    public static final int BATCHED = 0;
+    public static final int INSTANCED = 1;
+
     // This is what the array should looks like:
     //
     // Position                Color                    TextureCoords   TextureID
@@ -43,19 +57,53 @@ public class SurfaceRenderer extends Renderers {
     private final int TEXTURE_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
     private final int TEXTURE_ID_OFFSET = TEXTURE_COORDS_OFFSET + TEXTURE_COORDS_SIZE * Float.BYTES;
 
+    // In instanced mode each Surface is a single record expanded into a quad by the vertex shader:
+    //
+    // Center          Size            Rotation   Color                         TextureRect                   TextureID
+    // float, float,   float, float,   float,     float, float, float, float,   float, float, float, float,   float
+    private final int INSTANCE_SIZE = 14;
+
+    // Texture IDs 1 to 7 are the slots of uTextures, IDs from 8 are the layers of the TextureArray bound to the unit 8
+    private static final int MAX_TEXTURES = 7;
+    private static final int TEXTURE_ARRAY_SLOT = 8;
+
+    // Dirty spans separated by at most this number of clean Surfaces are uploaded together
+    private static final int MERGE_DISTANCE = 8;
+    private final int CENTER_OFFSET = 0;
+    private final int SIZE_OFFSET = CENTER_OFFSET + 2 * Float.BYTES;
+    private final int ROTATION_OFFSET = SIZE_OFFSET + 2 * Float.BYTES;
+    private final int INSTANCE_COLOR_OFFSET = ROTATION_OFFSET + Float.BYTES;
+    private final int TEXTURE_RECT_OFFSET = INSTANCE_COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
+    private final int INSTANCE_TEXTURE_ID_OFFSET = TEXTURE_RECT_OFFSET + 4 * Float.BYTES;
+
     private final Surface[] surfaces;
+    private final boolean[] staleSlots; // Slots whose data changed since they were last uploaded
+    private final SurfaceGrid.Entry[] entries; // World bounds of the Surfaces, in the same slots
+    private long nextSequence;
     private final List<Texture> textures;
+    private TextureArray textureArray;
 
     private final int batchSize;
     private final Shader shader;
-    private final float[] vertices;
+    private final StreamingBuffer vertexBuffer;
+    private final FloatBuffer vertices; // Off-heap data of the vertexBuffer
+    private final int recordSize; // The number of floats per Surface
+    private long uploadedBytes;
     private final int[] textureSlots = {0, 1, 2, 3, 4, 5, 6, 7};
     private int numberOfSurfaces;
+    private int visibleCount; // Surfaces in [0, visibleCount) are drawn, the others were culled
+    private int committedCount; // The visibleCount of the last commit
+    private SurfaceGrid grid;
+    private SurfaceGrid.Entry[] orderedEntries; // Buffers used by cull() to rearrange the slots
+    private Surface[] movedSurfaces;
+    private float[] movedRecords;
     private boolean hasRoom;
     private final int zIndex;
+    private final int mode;
 
-    private int vertexBufferObjectID;
     private int vertexArrayObjectID;
+    private int elementBufferObjectID;
+    private int cornerBufferObjectID;
 
     /**
      * Create a new SurfaceRenderer
@@ -65,15 +113,38 @@ public class SurfaceRenderer extends Renderers {
      * @param zIndex the Z level of the SurfaceRenderer
      */
     public SurfaceRenderer(int batchSize, int zIndex) {
+        this(batchSize, zIndex, BATCHED);
+    }
+
+    /**
+     * Create a new SurfaceRenderer
+     * This renderer is going to be automatically created when adding Surface to your GameObjects
+     *
+     * @param batchSize the max number of Line the renderer can buffer
+     * @param zIndex the Z level of the SurfaceRenderer
+     * @param mode SurfaceRenderer.BATCHED (4 vertices per Surface) or SurfaceRenderer.INSTANCED (1 record per Surface)
+     */
+    public SurfaceRenderer(int batchSize, int zIndex, int mode) {
         this.surfaces = new Surface[batchSize];
+        this.staleSlots = new boolean[batchSize];
+        this.entries = new SurfaceGrid.Entry[batchSize];
         this.textures = new ArrayList<>();
 
         this.batchSize = batchSize;
         this.zIndex = zIndex;
+        this.mode = mode;
         m_zIndex = zIndex;
-        ResourceManager.load("./src/dsengine/resources/shaders/default.glsl", Shader.class);
-        this.shader = ResourceManager.get("./src/dsengine/resources/shaders/default.glsl");
-        this.vertices = new float[batchSize * 4 * VERTEX_SIZE]; // The 4 is the number of vertices per quads
+        if (mode == INSTANCED) {
+            ResourceManager.load("./src/dsengine/resources/shaders/instanced.glsl", Shader.class);
+            this.shader = ResourceManager.get("./src/dsengine/resources/shaders/instanced.glsl");
+            this.recordSize = INSTANCE_SIZE;
+        } else {
+            ResourceManager.load("./src/dsengine/resources/shaders/default.glsl", Shader.class);
+            this.shader = ResourceManager.get("./src/dsengine/resources/shaders/default.glsl");
+            this.recordSize = 4 * VERTEX_SIZE; // The 4 is the number of vertices per quads
+        }
+        this.vertexBuffer = new StreamingBuffer(batchSize * recordSize);
+        this.vertices = vertexBuffer.getData();
         this.numberOfSurfaces = 0;
         this.hasRoom = true;
     }
@@ -84,19 +155,22 @@ public class SurfaceRenderer extends Renderers {
     public void start() {
         shader.bind();
         shader.uploadIntArray("uTextures", textureSlots);
-        shader.uploadMat4f("uProjectionMatrix", SceneManager.getCurrentScene().getCamera().getProjectionMatrix());
-        shader.uploadMat4f("uViewMatrix", SceneManager.getCurrentScene().getCamera().getViewMatrix());
+        shader.uploadInt("uTextureArray", TEXTURE_ARRAY_SLOT);
+        shader.uploadCamera(SceneManager.getCurrentScene().getCamera());
 
         vertexArrayObjectID = glGenVertexArrays();
-        glBindVertexArray(vertexArrayObjectID);
+        GLState.bindVertexArray(vertexArrayObjectID);
+
+        if (mode == INSTANCED) {
+            startInstanced();
+            return;
+        }
 
-        vertexBufferObjectID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObjectID);
-        glBufferData(GL_ARRAY_BUFFER, (long) vertices.length * Float.BYTES, GL_STREAM_DRAW);
+        vertexBuffer.init();
 
-        int elementBufferObjectID = glGenBuffers();
+        elementBufferObjectID = glGenBuffers();
         int[] indices = generateIndices();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, elementBufferObjectID);
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, elementBufferObjectID);
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
 
         glVertexAttribPointer(0, POSITION_SIZE, GL_FLOAT, false, VERTEX_SIZE * Float.BYTES, POSITION_OFFSET);
@@ -112,6 +186,31 @@ public class SurfaceRenderer extends Renderers {
         glEnableVertexAttribArray(3);
     }
 
+    /**
+     * Allocate the buffers of the instanced mode: a static quad shared by every instance and the instance records
+     */
+    private void startInstanced() {
+        cornerBufferObjectID = glGenBuffers();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, cornerBufferObjectID);
+        glBufferData(GL_ARRAY_BUFFER, new float[]{0, 0, 1, 0, 0, 1, 1, 1}, GL_STATIC_DRAW); // Drawn as a triangle strip
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
+        glEnableVertexAttribArray(0);
+
+        vertexBuffer.init();
+
+        int stride = INSTANCE_SIZE * Float.BYTES;
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, CENTER_OFFSET);
+        glVertexAttribPointer(2, 2, GL_FLOAT, false, stride, SIZE_OFFSET);
+        glVertexAttribPointer(3, 1, GL_FLOAT, false, stride, ROTATION_OFFSET);
+        glVertexAttribPointer(4, COLOR_SIZE, GL_FLOAT, false, stride, INSTANCE_COLOR_OFFSET);
+        glVertexAttribPointer(5, 4, GL_FLOAT, false, stride, TEXTURE_RECT_OFFSET);
+        glVertexAttribPointer(6, 1, GL_FLOAT, false, stride, INSTANCE_TEXTURE_ID_OFFSET);
+        for (int attribute = 1; attribute <= 6; attribute++) {
+            glEnableVertexAttribArray(attribute);
+            glVertexAttribDivisor(attribute, 1); // Advance once per instance instead of once per vertex
+        }
+    }
+
     /**
      * Add a Surface to the SurfaceRenderer
      *
@@ -119,8 +218,11 @@ public class SurfaceRenderer extends Renderers {
      */
     public void addSurface(Surface surface) {
         surfaces[numberOfSurfaces] = surface;
+        surface.setRenderer(this, numberOfSurfaces);
+        entries[numberOfSurfaces] = new SurfaceGrid.Entry(numberOfSurfaces, nextSequence++);
 
-        loadVertexProperties(numberOfSurfaces);
+        loadProperties(numberOfSurfaces);
+        staleSlots[numberOfSurfaces] = true;
 
         numberOfSurfaces++;
         if (numberOfSurfaces >= batchSize) {
@@ -128,48 +230,338 @@ public class SurfaceRenderer extends Renderers {
         }
     }
 
+    /**
+     * Remove a Surface from the SurfaceRenderer
+     * The last Surface takes its slot so the buffer stays compact, only the moved slots are uploaded again
+     *
+     * @param surface a Surface of this SurfaceRenderer
+     */
+    public void removeSurface(Surface surface) {
+        int index = surface.getRendererIndex();
+        if (surface.getRenderer() != this || surfaces[index] != surface) {
+            return;
+        }
+
+        if (index < visibleCount) {
+            // Leave the visible slots first so they stay contiguous, the next cull() restores their order
+            visibleCount--;
+            swapSlots(index, visibleCount);
+            index = visibleCount;
+        }
+        if (grid != null) {
+            grid.remove(entries[index]);
+        }
+
+        int last = numberOfSurfaces - 1;
+        swapSlots(index, last);
+        surfaces[last] = null;
+        entries[last] = null;
+        staleSlots[last] = false;
+        surface.setRenderer(null, -1);
+
+        numberOfSurfaces--;
+        hasRoom = true;
+    }
+
+    /**
+     * @return true if the SurfaceRenderer has no Surface left
+     */
+    public boolean isEmpty() {
+        return numberOfSurfaces == 0;
+    }
+
     /**
      * This method is called every frame to update the Surfaces however the data new data will be buffered only if
      * a Surface is set to dirty
      */
     public void render() {
-        boolean rebufferData = false;
+        prepare();
+        bindState();
+        draw();
+        unbindState();
+    }
+
+    @Override
+    void prepare() {
+        loadSurfaces();
+        uploadSurfaces();
+    }
+
+    /**
+     * Load the data of the dirty Surfaces and update their bounds in the grid
+     */
+    void loadSurfaces() {
         for (int i = 0; i < numberOfSurfaces; i++) {
             if (surfaces[i].isDirty() || surfaces[i].isGameObjectDirty()) {
-                loadVertexProperties(i);
+                loadProperties(i);
                 surfaces[i].markClean();
                 surfaces[i].markGameObjectClean();
-                rebufferData = true;
+                staleSlots[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Move the Surfaces found by the grid query of this frame to the first slots, in the order they were added so
+     * that overlapping Surfaces keep their draw order, the other Surfaces follow
+     * Only the slots whose Surface changed are moved and uploaded again
+     *
+     * @param frame the frame number of the query
+     */
+    void cull(int frame) {
+        if (orderedEntries == null) {
+            orderedEntries = new SurfaceGrid.Entry[batchSize];
+            movedSurfaces = new Surface[batchSize];
+            movedRecords = new float[batchSize * recordSize];
+        }
+
+        int count = 0;
+        for (int i = 0; i < numberOfSurfaces; i++) {
+            SurfaceGrid.Entry entry = entries[i];
+            if (entry.visibleFrame == frame) {
+                // Insertion sort: the Surfaces visible on the previous frame are already in order
+                int j = count++;
+                while (j > 0 && orderedEntries[j - 1].sequence > entry.sequence) {
+                    orderedEntries[j] = orderedEntries[j - 1];
+                    j--;
+                }
+                orderedEntries[j] = entry;
+            }
+        }
+        int hidden = count;
+        for (int i = 0; i < numberOfSurfaces; i++) {
+            if (entries[i].visibleFrame != frame) {
+                orderedEntries[hidden++] = entries[i];
+            }
+        }
+
+        for (int i = 0; i < numberOfSurfaces; i++) {
+            if (orderedEntries[i] != entries[i]) {
+                int from = orderedEntries[i].slot;
+                movedSurfaces[i] = surfaces[from];
+                for (int k = 0; k < recordSize; k++) {
+                    movedRecords[i * recordSize + k] = vertices.get(from * recordSize + k);
+                }
+            }
+        }
+        for (int i = 0; i < numberOfSurfaces; i++) {
+            if (orderedEntries[i] != entries[i]) {
+                surfaces[i] = movedSurfaces[i];
+                surfaces[i].setRenderer(this, i);
+                entries[i] = orderedEntries[i];
+                entries[i].slot = i;
+                for (int k = 0; k < recordSize; k++) {
+                    vertices.put(i * recordSize + k, movedRecords[i * recordSize + k]);
+                }
+                staleSlots[i] = true;
+                movedSurfaces[i] = null;
             }
+            orderedEntries[i] = null;
         }
+        visibleCount = count;
+    }
 
-        if (rebufferData) {
-            glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObjectID);
-            glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+    /**
+     * Send the modified visible slots to the GPU, the culled slots are uploaded once they become visible again
+     */
+    void uploadSurfaces() {
+        if (grid == null) {
+            visibleCount = numberOfSurfaces;
+        }
+        // The slots past the last committed range may be undefined on the GPU (an orphaned buffer only receives the
+        // committed range), they are uploaded whole when they are drawn again
+        for (int i = committedCount; i < visibleCount; i++) {
+            staleSlots[i] = true;
+        }
+        committedCount = visibleCount;
+
+        // Only the spans of modified slots are uploaded, spans separated by a few clean slots are merged
+        uploadedBytes = 0;
+        int spanStart = -1;
+        int spanEnd = -1;
+        for (int i = 0; i < visibleCount; i++) {
+            if (staleSlots[i]) {
+                staleSlots[i] = false;
+                if (spanStart < 0) {
+                    spanStart = i;
+                } else if (i - spanEnd > MERGE_DISTANCE) {
+                    upload(spanStart, spanEnd);
+                    spanStart = i;
+                }
+                spanEnd = i + 1;
+            }
+        }
+        if (spanStart >= 0) {
+            upload(spanStart, spanEnd);
         }
+        vertexBuffer.commit(visibleCount * recordSize);
+        uploadedBytes = vertexBuffer.getUploadedBytes();
+    }
 
+    @Override
+    void bindState() {
         shader.bind();
-        shader.uploadMat4f("uProjectionMatrix", SceneManager.getCurrentScene().getCamera().getProjectionMatrix());
-        shader.uploadMat4f("uViewMatrix", SceneManager.getCurrentScene().getCamera().getViewMatrix());
+        shader.uploadCamera(SceneManager.getCurrentScene().getCamera());
         for (int i = 0; i < textures.size(); i++) {
-            glActiveTexture(GL_TEXTURE0 + i + 1);
-            textures.get(i).bind();
+            textures.get(i).bind(i + 1);
+        }
+        if (textureArray != null) {
+            textureArray.bind(TEXTURE_ARRAY_SLOT);
+        }
+    }
+
+    @Override
+    void draw() {
+        // A persistent vertexBuffer may hold the data in another region than the one of the attribute pointers
+        int regionOffset = vertexBuffer.getRegionOffset();
+        GLState.bindVertexArray(vertexArrayObjectID);
+        if (mode == INSTANCED) {
+            if (regionOffset == 0) {
+                glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, 4, visibleCount);
+            } else {
+                glDrawArraysInstancedBaseInstance(GL_TRIANGLE_STRIP, 0, 4, visibleCount, regionOffset / INSTANCE_SIZE);
+            }
+        } else {
+            if (regionOffset == 0) {
+                glDrawElements(GL_TRIANGLES, visibleCount * 6, GL_UNSIGNED_INT, 0);
+            } else {
+                glDrawElementsBaseVertex(GL_TRIANGLES, visibleCount * 6, GL_UNSIGNED_INT, 0, regionOffset / VERTEX_SIZE);
+            }
         }
+        vertexBuffer.fence();
+    }
 
-        glBindVertexArray(vertexArrayObjectID);
-        glEnableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vPos"));
-        glEnableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vColor"));
+    @Override
+    void unbindState() {
+        for (int i = 0; i < textures.size(); i++) {
+            textures.get(i).unbind(i + 1);
+        }
+        if (textureArray != null) {
+            textureArray.unbind(TEXTURE_ARRAY_SLOT);
+        }
+        shader.unbind();
+    }
 
-        glDrawElements(GL_TRIANGLES, numberOfSurfaces * 6, GL_UNSIGNED_INT, 0);
+    @Override
+    int getPass() {
+        return SURFACE_PASS;
+    }
 
-        glDisableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vPos"));
-        glDisableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vColor"));
-        glBindVertexArray(0);
+    @Override
+    Shader getShader() {
+        return shader;
+    }
 
+    @Override
+    int getTextureSetHash() {
+        int hash = textureArray == null ? 0 : textureArray.getID();
         for (Texture texture : textures) {
-            texture.unbind();
+            hash = 31 * hash + texture.getID();
         }
-        shader.unbind();
+        return hash;
+    }
+
+    @Override
+    boolean hasSameState(Renderers renderer) {
+        if (!(renderer instanceof SurfaceRenderer)) {
+            return false;
+        }
+        SurfaceRenderer surfaceRenderer = (SurfaceRenderer) renderer;
+        return shader == surfaceRenderer.shader && textureArray == surfaceRenderer.textureArray && textures.equals(surfaceRenderer.textures);
+    }
+
+    /**
+     * Exchange the slots of two Surfaces, both slots are uploaded again
+     *
+     * @param a the index of the first Surface
+     * @param b the index of the second Surface
+     */
+    private void swapSlots(int a, int b) {
+        if (a == b) {
+            return;
+        }
+
+        Surface surface = surfaces[a];
+        surfaces[a] = surfaces[b];
+        surfaces[b] = surface;
+        surfaces[a].setRenderer(this, a);
+        surfaces[b].setRenderer(this, b);
+
+        SurfaceGrid.Entry entry = entries[a];
+        entries[a] = entries[b];
+        entries[b] = entry;
+        entries[a].slot = a;
+        entries[b].slot = b;
+
+        for (int i = 0; i < recordSize; i++) {
+            float value = vertices.get(a * recordSize + i);
+            vertices.put(a * recordSize + i, vertices.get(b * recordSize + i));
+            vertices.put(b * recordSize + i, value);
+        }
+        staleSlots[a] = true;
+        staleSlots[b] = true;
+    }
+
+    /**
+     * Set the grid the Surfaces are culled with
+     *
+     * @param grid a SurfaceGrid (null to draw every Surface)
+     */
+    void setGrid(SurfaceGrid grid) {
+        for (int i = 0; i < numberOfSurfaces; i++) {
+            if (this.grid != null) {
+                this.grid.remove(entries[i]);
+            }
+            if (grid != null) {
+                grid.update(entries[i]);
+            }
+        }
+        this.grid = grid;
+    }
+
+    /**
+     * @return the number of Surfaces drawn by the last render
+     */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /**
+     * @return the number of Surfaces of the SurfaceRenderer
+     */
+    public int getSurfaceCount() {
+        return numberOfSurfaces;
+    }
+
+    /**
+     * Mark the data of a range of Surfaces as modified in the vertex buffer
+     *
+     * @param start the index of the first Surface
+     * @param end the index after the last Surface
+     */
+    private void upload(int start, int end) {
+        vertexBuffer.markDirty(start * recordSize, (end - start) * recordSize);
+    }
+
+    /**
+     * @return the number of bytes uploaded to the GPU during the last render
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * Delete the GPU buffers of the SurfaceRenderer and free its vertex data
+     */
+    public void delete() {
+        GLState.deleteVertexArray(vertexArrayObjectID);
+        if (elementBufferObjectID != 0) {
+            GLState.deleteBuffer(elementBufferObjectID);
+        }
+        if (cornerBufferObjectID != 0) {
+            GLState.deleteBuffer(cornerBufferObjectID);
+        }
+        vertexBuffer.delete();
     }
 
     /**
@@ -202,30 +594,156 @@ public class SurfaceRenderer extends Renderers {
     }
 
     /**
-     * This method will automatically generate the necessary vertices for the Surface at index
+     * Load the data of the Surface at index, according to the render mode
      *
      * @param index the index of the Surface
      */
-    private void loadVertexProperties(int index) {
-        Surface surface = this.surfaces[index];
-        int offset = index * 4 * VERTEX_SIZE;
+    private void loadProperties(int index) {
+        if (mode == INSTANCED) {
+            loadInstanceProperties(index);
+        } else {
+            loadVertexProperties(index);
+        }
+        updateBounds(index);
+    }
 
-        if (surface.getTexture() != null) {
-            if (!textures.contains(surface.getTexture())) {
-                textures.add(surface.getTexture());
+    /**
+     * Compute the world bounds of the Surface at index from its loaded data and update them in the grid
+     *
+     * @param index the index of the Surface
+     */
+    private void updateBounds(int index) {
+        SurfaceGrid.Entry entry = entries[index];
+        int offset = index * recordSize;
+        if (mode == INSTANCED) {
+            // Extents of the rotated quad around its center
+            float halfWidth = vertices.get(offset + 2) / 2;
+            float halfHeight = vertices.get(offset + 3) / 2;
+            float cos = Math.abs((float) Math.cos(vertices.get(offset + 4)));
+            float sin = Math.abs((float) Math.sin(vertices.get(offset + 4)));
+            float extentX = Math.abs(halfWidth) * cos + Math.abs(halfHeight) * sin;
+            float extentY = Math.abs(halfWidth) * sin + Math.abs(halfHeight) * cos;
+            entry.minX = vertices.get(offset) - extentX;
+            entry.maxX = vertices.get(offset) + extentX;
+            entry.minY = vertices.get(offset + 1) - extentY;
+            entry.maxY = vertices.get(offset + 1) + extentY;
+        } else {
+            entry.minX = entry.maxX = vertices.get(offset);
+            entry.minY = entry.maxY = vertices.get(offset + 1);
+            for (int i = 1; i < 4; i++) {
+                float x = vertices.get(offset + i * VERTEX_SIZE);
+                float y = vertices.get(offset + i * VERTEX_SIZE + 1);
+                entry.minX = Math.min(entry.minX, x);
+                entry.maxX = Math.max(entry.maxX, x);
+                entry.minY = Math.min(entry.minY, y);
+                entry.maxY = Math.max(entry.maxY, y);
             }
         }
+        if (grid != null) {
+            grid.update(entry);
+        }
+    }
 
-        int textureID = 0; // The texture ID 0 will never be used
-        if (surface.getTexture() != null) {
-            for (int i = 0; i < textures.size(); i++) {
-                if (textures.get(i).equals(surface.getTexture())) {
-                    textureID = i + 1;
-                    break;
-                }
-            }
+    /**
+     * Get the ID of the Surface texture, the texture is added to the renderer if needed
+     * Eligible textures go to the TextureArray of the renderer when it is compatible, the others take one of the
+     * 7 texture slots
+     *
+     * @param surface a Surface
+     * @return the texture ID (0 if the Surface has no texture)
+     */
+    private int getTextureID(Surface surface) {
+        Texture texture = surface.getTexture();
+        if (texture == null) {
+            return 0; // The texture ID 0 will never be used
+        }
+
+        int slot = textures.indexOf(texture);
+        if (slot >= 0) {
+            return slot + 1;
+        }
+
+        if (textureArray == null) {
+            textureArray = TextureArray.get(texture);
+        }
+        if (textureArray != null && textureArray.canHold(texture)) {
+            return TEXTURE_ARRAY_SLOT + textureArray.addTexture(texture);
+        }
+
+        if (textures.size() < MAX_TEXTURES) {
+            textures.add(texture);
+            return textures.size();
         }
 
+        // Only happens when the texture of a Surface is changed after it was added to the renderer
+        GameLogger.getLogger("SurfaceRenderer").warn(MessageFormat.format("No texture slot left for {0}, the Surface is drawn without texture", texture.getFilepath()));
+        return 0;
+    }
+
+    /**
+     * Check if a texture can be used by this renderer without exceeding its texture capacity
+     *
+     * @param texture a Texture (can be null)
+     * @return true if the texture is already used or can be added
+     */
+    public boolean hasTextureRoom(Texture texture) {
+        if (texture == null || textures.contains(texture) || textures.size() < MAX_TEXTURES) {
+            return true;
+        }
+        return TextureArray.isEligible(texture) && (textureArray == null || textureArray.canHold(texture));
+    }
+
+    /**
+     * This method will generate the instance record of the Surface at index
+     * The quad corners and the rotation are computed by the vertex shader
+     *
+     * @param index the index of the Surface
+     */
+    private void loadInstanceProperties(int index) {
+        Surface surface = this.surfaces[index];
+        int offset = index * INSTANCE_SIZE;
+        Transform transform = surface.getTransform();
+        Transform groupTransform = surface.renderGroup.getTransform();
+
+        float width = transform.scale.x + groupTransform.scale.x;
+        float height = transform.scale.y + groupTransform.scale.y;
+
+        // Center
+        vertices.put(offset, transform.position.x + groupTransform.position.x + width / 2);
+        vertices.put(offset + 1, transform.position.y + groupTransform.position.y + height / 2);
+
+        // Size and rotation
+        vertices.put(offset + 2, width);
+        vertices.put(offset + 3, height);
+        vertices.put(offset + 4, transform.getRotation(Transform.RADIAN));
+
+        // Color
+        vertices.put(offset + 5, surface.getColor().getRed());
+        vertices.put(offset + 6, surface.getColor().getGreen());
+        vertices.put(offset + 7, surface.getColor().getBlue());
+        vertices.put(offset + 8, surface.getColor().getAlpha());
+
+        // Texture coordinates of the bottom left and top right corners
+        Vector2f[] textureCoords = surface.getTextureCoords();
+        vertices.put(offset + 9, textureCoords[2].x);
+        vertices.put(offset + 10, textureCoords[2].y);
+        vertices.put(offset + 11, textureCoords[0].x);
+        vertices.put(offset + 12, textureCoords[0].y);
+
+        vertices.put(offset + 13, getTextureID(surface));
+    }
+
+    /**
+     * This method will automatically generate the necessary vertices for the Surface at index
+     *
+     * @param index the index of the Surface
+     */
+    private void loadVertexProperties(int index) {
+        Surface surface = this.surfaces[index];
+        int offset = index * 4 * VERTEX_SIZE;
+
+        int textureID = getTextureID(surface);
+
         float x = -surface.getCenterPoint().x + surface.getTransform().scale.x + surface.renderGroup.getTransform().scale.x;
         float y = -surface.getCenterPoint().y + surface.getTransform().scale.y + surface.renderGroup.getTransform().scale.y;
         // This will loop 4 times for the 4 vertices.
@@ -239,22 +757,22 @@ public class SurfaceRenderer extends Renderers {
             }
 
             // Load the position
-            vertices[offset] = (x * (float) Math.cos(surface.getTransform().getRotation(Transform.RADIAN)) - y * (float) Math.sin(surface.getTransform().getRotation(Transform.RADIAN))) + surface.getCenterPoint().x + surface.getTransform().position.x + surface.renderGroup.getTransform().position.x;
-            vertices[offset + 1] = (x * (float) Math.sin(surface.getTransform().getRotation(Transform.RADIAN)) + y * (float) Math.cos(surface.getTransform().getRotation(Transform.RADIAN))) + surface.getCenterPoint().y + surface.getTransform().position.y + surface.renderGroup.getTransform().position.y;
+            vertices.put(offset, (x * (float) Math.cos(surface.getTransform().getRotation(Transform.RADIAN)) - y * (float) Math.sin(surface.getTransform().getRotation(Transform.RADIAN))) + surface.getCenterPoint().x + surface.getTransform().position.x + surface.renderGroup.getTransform().position.x);
+            vertices.put(offset + 1, (x * (float) Math.sin(surface.getTransform().getRotation(Transform.RADIAN)) + y * (float) Math.cos(surface.getTransform().getRotation(Transform.RADIAN))) + surface.getCenterPoint().y + surface.getTransform().position.y + surface.renderGroup.getTransform().position.y);
 
             // Load the color
-            vertices[offset + 2] = surface.getColor().getRed();
-            vertices[offset + 3] = surface.getColor().getGreen();
-            vertices[offset + 4] = surface.getColor().getBlue();
-            vertices[offset + 5] = surface.getColor().getAlpha();
+            vertices.put(offset + 2, surface.getColor().getRed());
+            vertices.put(offset + 3, surface.getColor().getGreen());
+            vertices.put(offset + 4, surface.getColor().getBlue());
+            vertices.put(offset + 5, surface.getColor().getAlpha());
 
 
             // Load the texture coordinates
-            vertices[offset + 6] = surface.getTextureCoords()[i].x;
-            vertices[offset + 7] = surface.getTextureCoords()[i].y;
+            vertices.put(offset + 6, surface.getTextureCoords()[i].x);
+            vertices.put(offset + 7, surface.getTextureCoords()[i].y);
 
             // Load texture ID
-            vertices[offset + 8] = textureID;
+            vertices.put(offset + 8, textureID);
 
 
             offset += VERTEX_SIZE;
@@ -11,15 +11,19 @@ package fr.dwightstudio.dsengine.graphics.renderers;
 import fr.dwightstudio.dsengine.graphics.gui.Label;
 import fr.dwightstudio.dsengine.graphics.objects.FontAtlas;
 import fr.dwightstudio.dsengine.graphics.objects.Shader;
+import fr.dwightstudio.dsengine.graphics.objects.StreamingBuffer;
+import fr.dwightstudio.dsengine.graphics.utils.GLState;
 import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
 import fr.dwightstudio.dsengine.resources.ResourceManager;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.FloatBuffer;
+
 import static org.lwjgl.opengl.GL11.GL_FLOAT;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
 
 public class TextRenderer extends Renderers {
     // This TextRenderer will take an Array of char and create vertices to render it
@@ -38,13 +42,14 @@ public class TextRenderer extends Renderers {
     private final FontAtlas fontAtlas;
     private final Shader shader;
     private final Label label;
-    private final float[] vertices;
+    private final StreamingBuffer vertexBuffer;
+    private final FloatBuffer vertices; // Off-heap data of the vertexBuffer
     private final int zindex;
 
     private char[] characters;
     private float cursorPosition;
     private int vertexArrayObjectID;
-    private int vertexBufferObjectID;
+    private int elementBufferObjectID;
 
     /**
      * Create a new TextRender
@@ -61,7 +66,8 @@ public class TextRenderer extends Renderers {
         this.zindex = zindex;
         m_zIndex = zindex;
 
-        this.vertices = new float[this.label.getMaxNumberOfChars() * 4 * VERTEX_SIZE];
+        this.vertexBuffer = new StreamingBuffer(this.label.getMaxNumberOfChars() * 4 * VERTEX_SIZE);
+        this.vertices = vertexBuffer.getData();
         this.cursorPosition = this.label.getTransform().position.x;
     }
 
@@ -70,20 +76,17 @@ public class TextRenderer extends Renderers {
      */
     public void init() {
         shader.bind();
-        shader.uploadMat4f("uProjectionMatrix",  SceneManager.getCurrentScene().getCamera().getProjectionMatrix());
-        shader.uploadMat4f("uViewMatrix", SceneManager.getCurrentScene().getCamera().getViewMatrix());
+        shader.uploadCamera(SceneManager.getCurrentScene().getCamera());
         shader.uploadInt("textureSampler", 0);
 
         vertexArrayObjectID = glGenVertexArrays();
-        glBindVertexArray(vertexArrayObjectID);
+        GLState.bindVertexArray(vertexArrayObjectID);
 
-        vertexBufferObjectID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObjectID);
-        glBufferData(GL_ARRAY_BUFFER, (long) vertices.length * Float.BYTES, GL_STREAM_DRAW);
+        vertexBuffer.init();
 
-        int elementBufferObjectID = glGenBuffers();
+        elementBufferObjectID = glGenBuffers();
         int[] indices = generateIndices();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, elementBufferObjectID);
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, elementBufferObjectID);
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
 
         glVertexAttribPointer(0, POSITION_SIZE, GL_FLOAT, false, VERTEX_SIZE * Float.BYTES, POSITION_OFFSET);
@@ -101,8 +104,15 @@ public class TextRenderer extends Renderers {
      * the Label is set to dirty
      */
     public void render() {
+        prepare();
+        bindState();
+        draw();
+        unbindState();
+    }
+
+    @Override
+    void prepare() {
         this.cursorPosition = this.label.getTransform().position.x;
-        boolean rebufferData = false;
         if (this.label.isDirty() || this.label.isGameObjectDirty()) {
             this.characters = this.label.getText().toCharArray();
             for (int i = 0; i < this.characters.length; i++) {
@@ -110,32 +120,57 @@ public class TextRenderer extends Renderers {
             }
             this.label.markClean();
             this.label.markGameObjectClean();
-            rebufferData = true;
+            vertexBuffer.markDirty(0, this.characters.length * 4 * VERTEX_SIZE);
         }
+        vertexBuffer.commit(this.characters.length * 4 * VERTEX_SIZE);
+    }
+
+    @Override
+    void bindState() {
+        shader.bind();
+        shader.uploadCamera(SceneManager.getCurrentScene().getCamera());
+        this.fontAtlas.getTexture().bind(0);
+    }
 
-        if (rebufferData) {
-            glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObjectID);
-            glBufferSubData(GL_ARRAY_BUFFER, 0, this.vertices);
+    @Override
+    void draw() {
+        GLState.bindVertexArray(vertexArrayObjectID);
+
+        // A persistent vertexBuffer may hold the data in another region than the one of the attribute pointers
+        int regionOffset = vertexBuffer.getRegionOffset();
+        if (regionOffset == 0) {
+            glDrawElements(GL_TRIANGLES, this.characters.length * 6, GL_UNSIGNED_INT, 0);
+        } else {
+            glDrawElementsBaseVertex(GL_TRIANGLES, this.characters.length * 6, GL_UNSIGNED_INT, 0, regionOffset / VERTEX_SIZE);
         }
+        vertexBuffer.fence();
+    }
 
-        shader.bind();
-        shader.uploadMat4f("uProjectionMatrix", SceneManager.getCurrentScene().getCamera().getProjectionMatrix());
-        shader.uploadMat4f("uViewMatrix", SceneManager.getCurrentScene().getCamera().getViewMatrix());
-        glActiveTexture(GL_TEXTURE0);
-        this.fontAtlas.getTexture().bind();
+    @Override
+    void unbindState() {
+        this.fontAtlas.getTexture().unbind(0);
+        shader.unbind();
+    }
 
-        glBindVertexArray(vertexArrayObjectID);
-        glEnableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vPos"));
-        glEnableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vColor"));
+    @Override
+    int getPass() {
+        return TEXT_PASS;
+    }
 
-        glDrawElements(GL_TRIANGLES, this.characters.length * 6, GL_UNSIGNED_INT, 0);
+    @Override
+    Shader getShader() {
+        return shader;
+    }
 
-        glDisableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vPos"));
-        glDisableVertexAttribArray(glGetAttribLocation(shader.getProgramID(), "vColor"));
-        glBindVertexArray(0);
+    @Override
+    int getTextureSetHash() {
+        return this.fontAtlas.getTexture().getID();
+    }
 
-        this.fontAtlas.getTexture().unbind();
-        shader.unbind();
+    @Override
+    boolean hasSameState(Renderers renderer) {
+        return renderer instanceof TextRenderer && shader == ((TextRenderer) renderer).shader
+                && this.fontAtlas.getTexture().equals(((TextRenderer) renderer).fontAtlas.getTexture());
     }
 
     /**
@@ -161,23 +196,32 @@ public class TextRenderer extends Renderers {
             }
 
             // Load the position
-            vertices[offset] = x + this.label.renderGroup.getTransform().position.x;
-            vertices[offset + 1] = y + this.label.renderGroup.getTransform().position.y;
+            vertices.put(offset, x + this.label.renderGroup.getTransform().position.x);
+            vertices.put(offset + 1, y + this.label.renderGroup.getTransform().position.y);
 
             // Load the color
-            vertices[offset + 2] = this.label.getColor().getRed();
-            vertices[offset + 3] = this.label.getColor().getGreen();
-            vertices[offset + 4] = this.label.getColor().getBlue();
+            vertices.put(offset + 2, this.label.getColor().getRed());
+            vertices.put(offset + 3, this.label.getColor().getGreen());
+            vertices.put(offset + 4, this.label.getColor().getBlue());
 
             // Load the texture coordinates
-            vertices[offset + 5] = this.fontAtlas.getGlyph(character).getTextureCoords(this.fontAtlas)[i].x;
-            vertices[offset + 6] = this.fontAtlas.getGlyph(character).getTextureCoords(this.fontAtlas)[i].y;
+            vertices.put(offset + 5, this.fontAtlas.getGlyph(character).getTextureCoords(this.fontAtlas)[i].x);
+            vertices.put(offset + 6, this.fontAtlas.getGlyph(character).getTextureCoords(this.fontAtlas)[i].y);
 
             offset += VERTEX_SIZE;
         }
         this.cursorPosition += this.fontAtlas.getGlyph(character).getWidth() + this.label.getTransform().scale.x + this.label.renderGroup.getTransform().scale.x;
     }
 
+    /**
+     * Delete the GPU buffers of the TextRenderer and free its vertex data
+     */
+    public void delete() {
+        GLState.deleteVertexArray(vertexArrayObjectID);
+        GLState.deleteBuffer(elementBufferObjectID);
+        vertexBuffer.delete();
+    }
+
     /**
      * Generate and fill the elements buffer to draw Quads correctly with two triangles
      *
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.graphics.utils;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+public class GLState {
+    // Every binding of the engine goes through this class so the calls which would not change anything are skipped
+    // NOTE: -1 means that the binding is unknown, the next call is always issued
+    private static final int UNKNOWN = -1;
+    private static final int MAX_TEXTURE_UNITS = 32;
+
+    private static int program = UNKNOWN;
+    private static int activeUnit = UNKNOWN;
+    private static int vertexArray = UNKNOWN;
+    private static int arrayBuffer = UNKNOWN;
+    private static int uniformBuffer = UNKNOWN;
+    private static final int[] textures2D = new int[MAX_TEXTURE_UNITS];
+    private static final int[] textureArrays = new int[MAX_TEXTURE_UNITS];
+
+    private static int issuedChanges = 0;
+    private static int avoidedChanges = 0;
+    private static int lastIssuedChanges = 0;
+    private static int lastAvoidedChanges = 0;
+
+    static {
+        Arrays.fill(textures2D, UNKNOWN);
+        Arrays.fill(textureArrays, UNKNOWN);
+    }
+
+    /**
+     * Use a shader program
+     *
+     * @param programID the program ID (0 to use none)
+     */
+    public static void useProgram(int programID) {
+        if (program == programID) {
+            avoidedChanges++;
+            return;
+        }
+        glUseProgram(programID);
+        program = programID;
+        issuedChanges++;
+    }
+
+    /**
+     * @return the program in use (-1 if unknown)
+     */
+    public static int getProgram() {
+        return program;
+    }
+
+    /**
+     * Select the active texture unit
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0)
+     */
+    public static void activeTexture(int unit) {
+        if (activeUnit == unit) {
+            avoidedChanges++;
+            return;
+        }
+        glActiveTexture(GL_TEXTURE0 + unit);
+        activeUnit = unit;
+        issuedChanges++;
+    }
+
+    /**
+     * Bind a texture to the active texture unit
+     *
+     * @param target GL_TEXTURE_2D or GL_TEXTURE_2D_ARRAY, other targets are not tracked
+     * @param textureID the texture ID (0 to unbind)
+     */
+    public static void bindTexture(int target, int textureID) {
+        int[] bindings = getTextureBindings(target);
+        if (bindings == null || activeUnit < 0 || activeUnit >= MAX_TEXTURE_UNITS) {
+            glBindTexture(target, textureID);
+            issuedChanges++;
+            return;
+        }
+        if (bindings[activeUnit] == textureID) {
+            avoidedChanges++;
+            return;
+        }
+        glBindTexture(target, textureID);
+        bindings[activeUnit] = textureID;
+        issuedChanges++;
+    }
+
+    /**
+     * Bind a texture to a texture unit, the active unit is only changed if the texture is not already bound
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0)
+     * @param target GL_TEXTURE_2D or GL_TEXTURE_2D_ARRAY
+     * @param textureID the texture ID (0 to unbind)
+     */
+    public static void bindTexture(int unit, int target, int textureID) {
+        int[] bindings = getTextureBindings(target);
+        if (bindings != null && unit < MAX_TEXTURE_UNITS && bindings[unit] == textureID) {
+            avoidedChanges++;
+            return;
+        }
+        activeTexture(unit);
+        bindTexture(target, textureID);
+    }
+
+    /**
+     * @param target a texture target
+     * @return the tracked bindings of the target, null if the target is not tracked
+     */
+    private static int[] getTextureBindings(int target) {
+        if (target == GL_TEXTURE_2D) {
+            return textures2D;
+        } else if (target == GL_TEXTURE_2D_ARRAY) {
+            return textureArrays;
+        }
+        return null;
+    }
+
+    /**
+     * Bind a vertex array object
+     *
+     * @param vertexArrayID the vertex array ID (0 to unbind)
+     */
+    public static void bindVertexArray(int vertexArrayID) {
+        if (vertexArray == vertexArrayID) {
+            avoidedChanges++;
+            return;
+        }
+        glBindVertexArray(vertexArrayID);
+        vertexArray = vertexArrayID;
+        issuedChanges++;
+    }
+
+    /**
+     * Bind a buffer
+     * GL_ELEMENT_ARRAY_BUFFER is part of the vertex array object state, it is never skipped
+     *
+     * @param target GL_ARRAY_BUFFER, GL_UNIFORM_BUFFER or GL_ELEMENT_ARRAY_BUFFER
+     * @param bufferID the buffer ID (0 to unbind)
+     */
+    public static void bindBuffer(int target, int bufferID) {
+        if ((target == GL_ARRAY_BUFFER && arrayBuffer == bufferID) || (target == GL_UNIFORM_BUFFER && uniformBuffer == bufferID)) {
+            avoidedChanges++;
+            return;
+        }
+        glBindBuffer(target, bufferID);
+        if (target == GL_ARRAY_BUFFER) {
+            arrayBuffer = bufferID;
+        } else if (target == GL_UNIFORM_BUFFER) {
+            uniformBuffer = bufferID;
+        }
+        issuedChanges++;
+    }
+
+    /**
+     * Delete a texture, the units it was bound to become unbound
+     *
+     * @param textureID the texture ID
+     */
+    public static void deleteTexture(int textureID) {
+        glDeleteTextures(textureID);
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            if (textures2D[i] == textureID) {
+                textures2D[i] = 0;
+            }
+            if (textureArrays[i] == textureID) {
+                textureArrays[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Delete a buffer, it becomes unbound if it was bound
+     *
+     * @param bufferID the buffer ID
+     */
+    public static void deleteBuffer(int bufferID) {
+        glDeleteBuffers(bufferID);
+        if (arrayBuffer == bufferID) {
+            arrayBuffer = 0;
+        }
+        if (uniformBuffer == bufferID) {
+            uniformBuffer = 0;
+        }
+    }
+
+    /**
+     * Delete a vertex array object, it becomes unbound if it was bound
+     *
+     * @param vertexArrayID the vertex array ID
+     */
+    public static void deleteVertexArray(int vertexArrayID) {
+        glDeleteVertexArrays(vertexArrayID);
+        if (vertexArray == vertexArrayID) {
+            vertexArray = 0;
+        }
+    }
+
+    /**
+     * Forget every binding, this must be called after binding anything without this class
+     */
+    public static void invalidate() {
+        program = UNKNOWN;
+        activeUnit = UNKNOWN;
+        vertexArray = UNKNOWN;
+        arrayBuffer = UNKNOWN;
+        uniformBuffer = UNKNOWN;
+        Arrays.fill(textures2D, UNKNOWN);
+        Arrays.fill(textureArrays, UNKNOWN);
+    }
+
+    /**
+     * Store the counters of the frame and reset them
+     * This is called automatically at the end of every frame
+     */
+    public static void endFrame() {
+        lastIssuedChanges = issuedChanges;
+        lastAvoidedChanges = avoidedChanges;
+        issuedChanges = 0;
+        avoidedChanges = 0;
+    }
+
+    /**
+     * @return the number of state changes sent to OpenGL during the last frame
+     */
+    public static int getIssuedChanges() {
+        return lastIssuedChanges;
+    }
+
+    /**
+     * @return the number of state changes skipped during the last frame because the state already matched
+     */
+    public static int getAvoidedChanges() {
+        return lastAvoidedChanges;
+    }
+}
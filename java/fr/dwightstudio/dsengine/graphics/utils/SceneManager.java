@@ -41,11 +41,27 @@ public class SceneManager {
         }
     }
 
+    /**
+     * Render the current Scene
+     */
+    public static void renderScenes() {
+        if (currentScene != null) {
+            currentScene.render();
+        }
+    }
+
     public static void add(Scene scene) {
         scenes.add(scene);
     }
 
+    /**
+     * Remove a Scene, the event listeners registered by the Scene are unregistered
+     *
+     * @param scene a Scene
+     */
     public static void remove(Scene scene) {
-        scenes.remove(scene);
+        if (scenes.remove(scene)) {
+            scene.unregisterListeners();
+        }
     }
 }
@@ -41,12 +41,12 @@ public class TextureUtils {
             return null;
         } else {
             int id = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, id);
+            GLState.bindTexture(GL_TEXTURE_2D, id);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, param);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, param);
             glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width[0], height[0], 0, GL_RGBA, GL_UNSIGNED_BYTE, texture);
             stbi_image_free(texture);
-            glBindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
+            GLState.bindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
             GameLogger.getLogger("TextureLoader").debug(MessageFormat.format("Finished loading texture : {0}", filepath));
             return new Texture(width[0], height[0], id, nbChannel[0], filepath);
         }
@@ -64,11 +64,11 @@ public class TextureUtils {
     public static Texture createTexture(ByteBuffer image, int width, int height, float param) {
         if (image != null) {
             int id = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, id);
+            GLState.bindTexture(GL_TEXTURE_2D, id);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, param);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, param);
             glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, image);
-            glBindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
+            GLState.bindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
             return new Texture(width, height, id, 4, null); // Since we are creating a PNG image, there is four channels
         }
         return null;
@@ -107,11 +107,11 @@ public class TextureUtils {
             // beginning.
             buffer.flip();
             int id = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, id);
+            GLState.bindTexture(GL_TEXTURE_2D, id);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, param);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, param);
             glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
-            glBindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
+            GLState.bindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
             return new Texture(width, height, id, 4, null); // Since we are creating a PNG image, there is four channels
         }
         return null;
@@ -119,11 +119,11 @@ public class TextureUtils {
 
     public static Texture createTexture(int width, int height, float param) {
         int id = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, id);
+        GLState.bindTexture(GL_TEXTURE_2D, id);
         glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, param);
         glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, param);
         glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB, width, height, 0, GL_RGB, GL_UNSIGNED_BYTE, 0);
-        glBindTexture(GL_TEXTURE_2D, 0);
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
         return new Texture(width, height, id, 3, null);
     }
 
@@ -139,11 +139,11 @@ public class TextureUtils {
      */
     public static Texture reloadTexture(ByteBuffer image, Texture texture, int width, int height, float param) {
         if (image != null) {
-            glBindTexture(GL_TEXTURE_2D, texture.getID());
+            GLState.bindTexture(GL_TEXTURE_2D, texture.getID());
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, param);
             glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, param);
             glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, image);
-            glBindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
+            GLState.bindTexture(GL_TEXTURE_2D, 0); // Unbinding any texture at the end to make sure it is not modified after
             return new Texture(width, height, texture.getID(), 4, null);
         }
         return null;
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.inputs;
+
+/**
+ * Preallocated ring buffer of timestamped input records
+ *
+ * The records are written by the GLFW callbacks and read by the input stage, a single thread must write and a single
+ * thread must read. The fields of a record are stored in parallel arrays so that pushing a record never allocates.
+ */
+class InputBuffer {
+    // Record types
+    static final int KEY = 0;
+    static final int MOUSE_BUTTON = 1;
+    static final int CURSOR = 2;
+    static final int SCROLL = 3;
+
+    private final int mask;
+    private final int[] types;
+    private final int[] codes;
+    private final int[] actions;
+    private final int[] mods;
+    private final double[] xValues;
+    private final double[] yValues;
+    private final long[] times;
+
+    private volatile long writeSequence;
+    private volatile long readSequence;
+    private long droppedRecords;
+
+    /**
+     * Create a new InputBuffer
+     *
+     * @param capacity the number of records the buffer can hold (rounded up to a power of two)
+     */
+    InputBuffer(int capacity) {
+        int size = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = size - 1;
+        this.types = new int[size];
+        this.codes = new int[size];
+        this.actions = new int[size];
+        this.mods = new int[size];
+        this.xValues = new double[size];
+        this.yValues = new double[size];
+        this.times = new long[size];
+    }
+
+    /**
+     * Add a record at the end of the buffer, the record is dropped if the buffer is full
+     *
+     * @param type the record type (see InputBuffer.KEY for example)
+     * @param code the key or button code
+     * @param action the GLFW action
+     * @param modifiers the GLFW modifiers
+     * @param x the cursor X position or the X scroll offset
+     * @param y the cursor Y position or the Y scroll offset
+     * @param time the record time (Scheduler.nanoTime())
+     * @return false if the record has been dropped
+     */
+    boolean push(int type, int code, int action, int modifiers, double x, double y, long time) {
+        long sequence = writeSequence;
+        if (sequence - readSequence > mask) {
+            droppedRecords++;
+            return false;
+        }
+
+        int index = (int) (sequence & mask);
+        types[index] = type;
+        codes[index] = code;
+        actions[index] = action;
+        mods[index] = modifiers;
+        xValues[index] = x;
+        yValues[index] = y;
+        times[index] = time;
+        writeSequence = sequence + 1;
+        return true;
+    }
+
+    /**
+     * @return the sequence of the next record to write
+     */
+    long getWriteSequence() {
+        return writeSequence;
+    }
+
+    /**
+     * @return the sequence of the next record to read
+     */
+    long getReadSequence() {
+        return readSequence;
+    }
+
+    /**
+     * Release the records before a sequence, they can be overwritten
+     *
+     * @param sequence the sequence of the next record to read
+     */
+    void release(long sequence) {
+        readSequence = sequence;
+    }
+
+    /**
+     * @return the number of records dropped because the buffer was full
+     */
+    long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    int getType(long sequence) {
+        return types[(int) (sequence & mask)];
+    }
+
+    int getCode(long sequence) {
+        return codes[(int) (sequence & mask)];
+    }
+
+    int getAction(long sequence) {
+        return actions[(int) (sequence & mask)];
+    }
+
+    int getMods(long sequence) {
+        return mods[(int) (sequence & mask)];
+    }
+
+    double getX(long sequence) {
+        return xValues[(int) (sequence & mask)];
+    }
+
+    double getY(long sequence) {
+        return yValues[(int) (sequence & mask)];
+    }
+
+    long getTime(long sequence) {
+        return times[(int) (sequence & mask)];
+    }
+}
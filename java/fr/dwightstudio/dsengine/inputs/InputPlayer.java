@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.inputs;
+
+import fr.dwightstudio.dsengine.graphics.GLFWWindow;
+import fr.dwightstudio.dsengine.logging.GameLogger;
+import fr.dwightstudio.dsengine.scheduling.Scheduler;
+import fr.dwightstudio.dsengine.scheduling.Task;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+/**
+ * Replays a file written by the InputRecorder through the input callbacks, frame by frame
+ *
+ * The records of a frame are fed at the PRE_INPUT stage of the matching frame, the live inputs are ignored during the
+ * playback. The duration of each frame is measured so that the sessions replayed by different builds can be compared.
+ */
+public class InputPlayer {
+
+    private static volatile InputPlayer active;
+    private static boolean feeding = false;
+
+    private final String filepath;
+    private final int[] types;
+    private final long[] frames;
+    private final int[] codes;
+    private final int[] scancodes;
+    private final int[] actions;
+    private final int[] mods;
+    private final double[] xValues;
+    private final double[] yValues;
+    private final int count;
+    private final long frameCount;
+
+    private Task task;
+    private long startFrame;
+    private int position;
+    private long lastFrameStart;
+    private long[] frameTimes;
+    private int frameTimeCount;
+
+    private InputPlayer(String filepath, DataInputStream input) throws IOException {
+        this.filepath = filepath;
+        if (input.readInt() != InputRecorder.MAGIC || input.readUnsignedByte() != InputRecorder.VERSION) {
+            throw new IOException("Not an input recording");
+        }
+
+        int capacity = 1024;
+        int[] types = new int[capacity];
+        long[] frames = new long[capacity];
+        int[] codes = new int[capacity];
+        int[] scancodes = new int[capacity];
+        int[] actions = new int[capacity];
+        int[] mods = new int[capacity];
+        double[] xValues = new double[capacity];
+        double[] yValues = new double[capacity];
+        int count = 0;
+        long frame = 0;
+
+        while (true) {
+            int type;
+            try {
+                type = input.readUnsignedByte();
+            } catch (EOFException e) {
+                // The recording was not stopped properly, keep what has been written
+                break;
+            }
+            frame += readVarInt(input);
+            if (type == InputRecorder.END) break;
+
+            if (count == capacity) {
+                capacity *= 2;
+                types = Arrays.copyOf(types, capacity);
+                frames = Arrays.copyOf(frames, capacity);
+                codes = Arrays.copyOf(codes, capacity);
+                scancodes = Arrays.copyOf(scancodes, capacity);
+                actions = Arrays.copyOf(actions, capacity);
+                mods = Arrays.copyOf(mods, capacity);
+                xValues = Arrays.copyOf(xValues, capacity);
+                yValues = Arrays.copyOf(yValues, capacity);
+            }
+            types[count] = type;
+            frames[count] = frame;
+            switch (type) {
+                case InputRecorder.KEY:
+                    codes[count] = readVarInt(input);
+                    scancodes[count] = readVarInt(input);
+                    actions[count] = input.readByte();
+                    mods[count] = input.readByte();
+                    break;
+                case InputRecorder.MOUSE_BUTTON:
+                    codes[count] = input.readByte();
+                    actions[count] = input.readByte();
+                    mods[count] = input.readByte();
+                    break;
+                case InputRecorder.CURSOR:
+                case InputRecorder.SCROLL:
+                    xValues[count] = input.readDouble();
+                    yValues[count] = input.readDouble();
+                    break;
+                default:
+                    throw new IOException(MessageFormat.format("Unknown record type {0}", type));
+            }
+            count++;
+        }
+
+        this.types = types;
+        this.frames = frames;
+        this.codes = codes;
+        this.scancodes = scancodes;
+        this.actions = actions;
+        this.mods = mods;
+        this.xValues = xValues;
+        this.yValues = yValues;
+        this.count = count;
+        this.frameCount = frame + 1;
+    }
+
+    /**
+     * Load a recording
+     *
+     * @param filepath the path of a file written by the InputRecorder
+     * @return an InputPlayer, null if the file cannot be read
+     */
+    public static InputPlayer load(String filepath) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filepath)))) {
+            InputPlayer player = new InputPlayer(filepath, input);
+            GameLogger.getLogger("InputPlayer").debug(MessageFormat.format("Loaded {0} inputs over {1} frames from {2}", player.count, player.frameCount, filepath));
+            return player;
+        } catch (IOException e) {
+            GameLogger.getLogger("InputPlayer").error(MessageFormat.format("Cannot load the input recording {0}", filepath));
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Start the playback at the next frame, the current playback is stopped
+     */
+    public void start() {
+        synchronized (InputPlayer.class) {
+            if (active != null) {
+                active.stop();
+            }
+            active = this;
+        }
+        position = 0;
+        startFrame = InputSystem.getFrame();
+        lastFrameStart = 0;
+        frameTimes = new long[(int) Math.min(frameCount, Integer.MAX_VALUE - 8)];
+        frameTimeCount = 0;
+        task = Scheduler.planRepeated(this::feed, Scheduler.PRE_INPUT, false, Integer.MIN_VALUE, 0);
+        GameLogger.getLogger("InputPlayer").info(MessageFormat.format("Playing the input recording {0}", filepath));
+    }
+
+    /**
+     * Stop the playback, the live inputs are accepted again
+     */
+    public void stop() {
+        synchronized (InputPlayer.class) {
+            if (active != this) return;
+            active = null;
+        }
+        if (task != null) {
+            task.setCanceled(true);
+            task = null;
+        }
+    }
+
+    /**
+     * Feed the records of the current frame to the callbacks
+     */
+    private void feed() {
+        long now = Scheduler.nanoTime();
+        if (lastFrameStart != 0 && frameTimeCount < frameTimes.length) {
+            frameTimes[frameTimeCount++] = now - lastFrameStart;
+        }
+        lastFrameStart = now;
+
+        long frame = InputSystem.getFrame() - startFrame;
+        long window = GLFWWindow.getWindow();
+        feeding = true;
+        try {
+            while (position < count && frames[position] <= frame) {
+                int i = position++;
+                switch (types[i]) {
+                    case InputRecorder.KEY:
+                        KeyboardListener.keyCallback.invoke(window, codes[i], scancodes[i], actions[i], mods[i]);
+                        break;
+                    case InputRecorder.MOUSE_BUTTON:
+                        MouseListener.mouseButtonCallback.invoke(window, codes[i], actions[i], mods[i]);
+                        break;
+                    case InputRecorder.CURSOR:
+                        MouseListener.cursorPosCallback.invoke(window, xValues[i], yValues[i]);
+                        break;
+                    case InputRecorder.SCROLL:
+                        MouseListener.mouseScrollCallback.invoke(window, xValues[i], yValues[i]);
+                        break;
+                }
+            }
+        } finally {
+            feeding = false;
+        }
+
+        if (frame >= frameCount) {
+            GameLogger.getLogger("InputPlayer").info(MessageFormat.format("Finished playing {0} ({1} frames, median frame time {2}us, 99th percentile {3}us)",
+                    filepath, frameCount, getFrameTimePercentile(50) / 1000, getFrameTimePercentile(99) / 1000));
+            stop();
+        }
+    }
+
+    /**
+     * Called by the input callbacks, the live inputs are ignored while a recording is played
+     *
+     * @return true if the callback should handle the input
+     */
+    static boolean acceptsCallback() {
+        return active == null || feeding;
+    }
+
+    /**
+     * @return true if the recording is being played
+     */
+    public boolean isPlaying() {
+        return active == this;
+    }
+
+    /**
+     * @return the number of frames of the recording
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the number of inputs of the recording
+     */
+    public int getInputCount() {
+        return count;
+    }
+
+    /**
+     * @return the duration in nanoseconds of every frame played so far
+     */
+    public long[] getFrameTimes() {
+        return frameTimes == null ? new long[0] : Arrays.copyOf(frameTimes, frameTimeCount);
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return the frame duration in nanoseconds below which this percentage of the played frames are
+     */
+    public long getFrameTimePercentile(double percentile) {
+        long[] sorted = getFrameTimes();
+        if (sorted.length == 0) return 0;
+
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.inputs;
+
+import fr.dwightstudio.dsengine.logging.GameLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+
+/**
+ * Records the input callbacks into a binary file to be replayed by an InputPlayer
+ *
+ * File format: the "DSIR" magic and a version byte, then one record per callback made of a type byte, the number of
+ * frames since the previous record (varint) and the callback arguments. An END record holds the last frame.
+ */
+public class InputRecorder {
+    static final int MAGIC = 0x44534952; // "DSIR"
+    static final int VERSION = 1;
+
+    // Record types
+    static final int KEY = 0;
+    static final int MOUSE_BUTTON = 1;
+    static final int CURSOR = 2;
+    static final int SCROLL = 3;
+    static final int END = 4;
+
+    private static DataOutputStream output;
+    private static String filepath;
+    private static long startFrame;
+    private static long lastFrame;
+    private static long recordCount;
+
+    /**
+     * Start recording the inputs into a file, the current recording is stopped
+     *
+     * @param filepath the path of the file to write
+     * @return false if the file cannot be opened
+     */
+    public static synchronized boolean start(String filepath) {
+        stop();
+        try {
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filepath)));
+            stream.writeInt(MAGIC);
+            stream.writeByte(VERSION);
+            InputRecorder.output = stream;
+            InputRecorder.filepath = filepath;
+            InputRecorder.startFrame = InputSystem.getFrame();
+            InputRecorder.lastFrame = 0;
+            InputRecorder.recordCount = 0;
+            GameLogger.getLogger("InputRecorder").info(MessageFormat.format("Recording inputs to {0}", filepath));
+            return true;
+        } catch (IOException e) {
+            GameLogger.getLogger("InputRecorder").error(MessageFormat.format("Cannot record inputs to {0}", filepath));
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Stop the recording and close the file
+     */
+    public static synchronized void stop() {
+        if (output == null) return;
+
+        try {
+            writeHeader(END);
+            output.close();
+            GameLogger.getLogger("InputRecorder").info(MessageFormat.format("Recorded {0} inputs over {1} frames to {2}", recordCount, lastFrame + 1, filepath));
+        } catch (IOException e) {
+            GameLogger.getLogger("InputRecorder").error(MessageFormat.format("Error while closing {0}", filepath));
+            e.printStackTrace();
+        }
+        output = null;
+    }
+
+    /**
+     * @return true if the inputs are being recorded
+     */
+    public static boolean isRecording() {
+        return output != null;
+    }
+
+    static synchronized void recordKey(int key, int scancode, int action, int mods) {
+        if (output == null) return;
+        try {
+            writeHeader(KEY);
+            writeVarInt(output, key);
+            writeVarInt(output, scancode);
+            output.writeByte(action);
+            output.writeByte(mods);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    static synchronized void recordMouseButton(int button, int action, int mods) {
+        if (output == null) return;
+        try {
+            writeHeader(MOUSE_BUTTON);
+            output.writeByte(button);
+            output.writeByte(action);
+            output.writeByte(mods);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    static synchronized void recordCursor(double xPos, double yPos) {
+        if (output == null) return;
+        try {
+            writeHeader(CURSOR);
+            output.writeDouble(xPos);
+            output.writeDouble(yPos);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    static synchronized void recordScroll(double xOffset, double yOffset) {
+        if (output == null) return;
+        try {
+            writeHeader(SCROLL);
+            output.writeDouble(xOffset);
+            output.writeDouble(yOffset);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Write the record type and the number of frames since the previous record
+     */
+    private static void writeHeader(int type) throws IOException {
+        long frame = InputSystem.getFrame() - startFrame;
+        output.writeByte(type);
+        writeVarInt(output, (int) (frame - lastFrame));
+        lastFrame = frame;
+        if (type != END) {
+            recordCount++;
+        }
+    }
+
+    private static void fail(IOException e) {
+        GameLogger.getLogger("InputRecorder").error(MessageFormat.format("Error while recording inputs to {0}, the recording is stopped", filepath));
+        e.printStackTrace();
+        try {
+            output.close();
+        } catch (IOException ignored) {
+            // Already failing
+        }
+        output = null;
+    }
+
+    static void writeVarInt(DataOutputStream stream, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            stream.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.writeByte(value);
+    }
+}
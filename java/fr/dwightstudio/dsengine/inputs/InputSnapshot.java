@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.inputs;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_LAST;
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_LAST;
+
+/**
+ * State of the inputs during one frame, built by the input stage (see InputSystem.getSnapshot())
+ *
+ * A snapshot is not modified while it is the current one, the snapshots are reused so a snapshot must not be kept
+ * beyond the frame following its own.
+ */
+public class InputSnapshot {
+    static final int KEY_WORDS = (GLFW_KEY_LAST + 64) / 64;
+    static final int MOUSE_BUTTONS = GLFW_MOUSE_BUTTON_LAST + 1;
+
+    final long[] keysDown = new long[KEY_WORDS];
+    final long[] keysPressed = new long[KEY_WORDS];
+    final long[] keysReleased = new long[KEY_WORDS];
+    int buttonsDown;
+    int buttonsPressed;
+    int buttonsReleased;
+
+    float cursorX;
+    float cursorY;
+    float cursorDeltaX;
+    float cursorDeltaY;
+    float scrollX;
+    float scrollY;
+
+    long frame;
+    long time;
+    int recordCount;
+
+    /**
+     * Start a new frame from the state at the end of the previous one
+     *
+     * @param previous the previous snapshot
+     */
+    void copyFrom(InputSnapshot previous) {
+        System.arraycopy(previous.keysDown, 0, keysDown, 0, KEY_WORDS);
+        for (int i = 0; i < KEY_WORDS; i++) {
+            keysPressed[i] = 0;
+            keysReleased[i] = 0;
+        }
+        buttonsDown = previous.buttonsDown;
+        buttonsPressed = 0;
+        buttonsReleased = 0;
+        cursorX = previous.cursorX;
+        cursorY = previous.cursorY;
+        cursorDeltaX = 0;
+        cursorDeltaY = 0;
+        scrollX = 0;
+        scrollY = 0;
+        recordCount = 0;
+    }
+
+    void setKey(int key, boolean down) {
+        if (key < 0 || key >= KEY_WORDS * 64) return;
+
+        int word = key >>> 6;
+        long bit = 1L << (key & 63);
+        if (down && (keysDown[word] & bit) == 0) {
+            keysDown[word] |= bit;
+            keysPressed[word] |= bit;
+        } else if (!down && (keysDown[word] & bit) != 0) {
+            keysDown[word] &= ~bit;
+            keysReleased[word] |= bit;
+        }
+    }
+
+    void setButton(int button, boolean down) {
+        if (button < 0 || button >= MOUSE_BUTTONS) return;
+
+        int bit = 1 << button;
+        if (down && (buttonsDown & bit) == 0) {
+            buttonsDown |= bit;
+            buttonsPressed |= bit;
+        } else if (!down && (buttonsDown & bit) != 0) {
+            buttonsDown &= ~bit;
+            buttonsReleased |= bit;
+        }
+    }
+
+    private static boolean isSet(long[] bits, int key) {
+        return key >= 0 && key < KEY_WORDS * 64 && (bits[key >>> 6] & (1L << (key & 63))) != 0;
+    }
+
+    private static boolean isSet(int bits, int button) {
+        return button >= 0 && button < MOUSE_BUTTONS && (bits & (1 << button)) != 0;
+    }
+
+    /**
+     * @param key the key code
+     * @return true if the key is down at the end of the frame
+     */
+    public boolean isKeyDown(int key) {
+        return isSet(keysDown, key);
+    }
+
+    /**
+     * @param key the key code
+     * @return true if the key has been pressed during the frame (even if it has been released since)
+     */
+    public boolean isKeyPressed(int key) {
+        return isSet(keysPressed, key);
+    }
+
+    /**
+     * @param key the key code
+     * @return true if the key has been released during the frame (even if it has been pressed again since)
+     */
+    public boolean isKeyReleased(int key) {
+        return isSet(keysReleased, key);
+    }
+
+    /**
+     * @param button the mouse button code
+     * @return true if the button is down at the end of the frame
+     */
+    public boolean isButtonDown(int button) {
+        return isSet(buttonsDown, button);
+    }
+
+    /**
+     * @param button the mouse button code
+     * @return true if the button has been pressed during the frame
+     */
+    public boolean isButtonPressed(int button) {
+        return isSet(buttonsPressed, button);
+    }
+
+    /**
+     * @param button the mouse button code
+     * @return true if the button has been released during the frame
+     */
+    public boolean isButtonReleased(int button) {
+        return isSet(buttonsReleased, button);
+    }
+
+    /**
+     * @return the cursor X screen coordinate at the end of the frame
+     */
+    public float getCursorX() {
+        return cursorX;
+    }
+
+    /**
+     * @return the cursor Y screen coordinate at the end of the frame
+     */
+    public float getCursorY() {
+        return cursorY;
+    }
+
+    /**
+     * @return the cursor X movement during the frame
+     */
+    public float getCursorDeltaX() {
+        return cursorDeltaX;
+    }
+
+    /**
+     * @return the cursor Y movement during the frame
+     */
+    public float getCursorDeltaY() {
+        return cursorDeltaY;
+    }
+
+    /**
+     * @return the X scroll offsets accumulated during the frame
+     */
+    public float getScrollX() {
+        return scrollX;
+    }
+
+    /**
+     * @return the Y scroll offsets accumulated during the frame
+     */
+    public float getScrollY() {
+        return scrollY;
+    }
+
+    /**
+     * @return the index of the frame
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return the time when the snapshot was built (Scheduler.nanoTime())
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the number of input records received during the frame
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+}
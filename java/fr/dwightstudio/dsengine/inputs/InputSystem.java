@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.inputs;
+
+import fr.dwightstudio.dsengine.scheduling.Scheduler;
+
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+
+/**
+ * Collects the input records pushed by the GLFW callbacks and builds a snapshot of the inputs at each frame
+ *
+ * The records must be pushed by the thread running the game loop (GLFW calls the callbacks in glfwPollEvents).
+ */
+public class InputSystem {
+
+    private static final InputBuffer buffer = new InputBuffer(4096);
+    private static final InputSnapshot[] snapshots = {new InputSnapshot(), new InputSnapshot()};
+    private static volatile InputSnapshot snapshot = snapshots[0];
+    private static volatile long frame = 0;
+
+    /**
+     * Push a key record
+     *
+     * @param key the key code
+     * @param action the GLFW action (GLFW_PRESS, GLFW_RELEASE or GLFW_REPEAT)
+     * @param mods the GLFW modifiers
+     */
+    public static void pushKey(int key, int action, int mods) {
+        buffer.push(InputBuffer.KEY, key, action, mods, 0, 0, Scheduler.nanoTime());
+    }
+
+    /**
+     * Push a mouse button record
+     *
+     * @param button the button code
+     * @param action the GLFW action (GLFW_PRESS or GLFW_RELEASE)
+     * @param mods the GLFW modifiers
+     */
+    public static void pushMouseButton(int button, int action, int mods) {
+        buffer.push(InputBuffer.MOUSE_BUTTON, button, action, mods, 0, 0, Scheduler.nanoTime());
+    }
+
+    /**
+     * Push a cursor record
+     *
+     * @param x the cursor X screen coordinate
+     * @param y the cursor Y screen coordinate
+     */
+    public static void pushCursor(double x, double y) {
+        buffer.push(InputBuffer.CURSOR, 0, 0, 0, x, y, Scheduler.nanoTime());
+    }
+
+    /**
+     * Push a scroll record
+     *
+     * @param xOffset the X scroll offset
+     * @param yOffset the Y scroll offset
+     */
+    public static void pushScroll(double xOffset, double yOffset) {
+        buffer.push(InputBuffer.SCROLL, 0, 0, 0, xOffset, yOffset, Scheduler.nanoTime());
+    }
+
+    /**
+     * Build the snapshot of the frame from the records pushed since the previous one
+     * Called by the input stage of the game loop
+     */
+    public static void update() {
+        InputSnapshot previous = snapshot;
+        InputSnapshot next = previous == snapshots[0] ? snapshots[1] : snapshots[0];
+        next.copyFrom(previous);
+
+        long end = buffer.getWriteSequence();
+        for (long sequence = buffer.getReadSequence(); sequence < end; sequence++) {
+            switch (buffer.getType(sequence)) {
+                case InputBuffer.KEY:
+                    next.setKey(buffer.getCode(sequence), buffer.getAction(sequence) != GLFW_RELEASE);
+                    break;
+                case InputBuffer.MOUSE_BUTTON:
+                    next.setButton(buffer.getCode(sequence), buffer.getAction(sequence) != GLFW_RELEASE);
+                    break;
+                case InputBuffer.CURSOR:
+                    next.cursorX = (float) buffer.getX(sequence);
+                    next.cursorY = (float) buffer.getY(sequence);
+                    break;
+                case InputBuffer.SCROLL:
+                    next.scrollX += (float) buffer.getX(sequence);
+                    next.scrollY += (float) buffer.getY(sequence);
+                    break;
+            }
+            next.recordCount++;
+        }
+        buffer.release(end);
+
+        next.cursorDeltaX = next.cursorX - previous.cursorX;
+        next.cursorDeltaY = next.cursorY - previous.cursorY;
+        next.frame = frame++;
+        next.time = Scheduler.nanoTime();
+        snapshot = next;
+    }
+
+    /**
+     * @return the snapshot of the inputs of the current frame
+     */
+    public static InputSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the index of the frame whose snapshot will be built at the next input stage
+     */
+    public static long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return the number of records dropped because too many inputs were received during a frame
+     */
+    public static long getDroppedRecords() {
+        return buffer.getDroppedRecords();
+    }
+}
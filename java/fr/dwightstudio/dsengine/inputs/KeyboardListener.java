@@ -19,6 +19,9 @@ public class KeyboardListener {
     private static final boolean[] keys = new boolean[350];
 
     public static GLFWKeyCallbackI keyCallback = (window, key, scancode, action, mods) -> {
+        if (!InputPlayer.acceptsCallback()) return;
+        InputRecorder.recordKey(key, scancode, action, mods);
+        InputSystem.pushKey(key, action, mods);
         if (key < keys.length) {
             keys[key] = action == GLFW_PRESS;
         }
@@ -12,7 +12,7 @@ import fr.dwightstudio.dsengine.graphics.GLFWWindow;
 import fr.dwightstudio.dsengine.graphics.gui.Button;
 import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
 import org.joml.Vector2f;
-import org.joml.Vector4f;
+import org.joml.Vector2fc;
 import org.lwjgl.glfw.GLFWCursorPosCallbackI;
 import org.lwjgl.glfw.GLFWMouseButtonCallbackI;
 import org.lwjgl.glfw.GLFWScrollCallbackI;
@@ -24,10 +24,14 @@ public class MouseListener {
     private static float xPos;
     private static float yPos;
     private static final boolean[] mouseButtons = new boolean[3];
+    private static volatile int cursorVersion = 0;
     private static float scrollX;
     private static float scrollY;
 
     public static GLFWMouseButtonCallbackI mouseButtonCallback = (window, button, action, mods) -> {
+        if (!InputPlayer.acceptsCallback()) return;
+        InputRecorder.recordMouseButton(button, action, mods);
+        InputSystem.pushMouseButton(button, action, mods);
         if (button < mouseButtons.length) {
             mouseButtons[button] = action == GLFW_PRESS;
         }
@@ -35,14 +39,21 @@ public class MouseListener {
     };
 
     public static GLFWCursorPosCallbackI cursorPosCallback = (window, xpos, ypos) -> {
+        if (!InputPlayer.acceptsCallback()) return;
+        InputRecorder.recordCursor(xpos, ypos);
         xPos = (float) xpos;
         yPos = (float) Math.abs(ypos - GLFWWindow.getHeight());
+        cursorVersion++;
+        InputSystem.pushCursor(xPos, yPos);
         Button.checkHoverAll();
     };
 
     public static GLFWScrollCallbackI mouseScrollCallback = (window, xoffset, yoffset) -> {
+        if (!InputPlayer.acceptsCallback()) return;
+        InputRecorder.recordScroll(xoffset, yoffset);
         scrollX = (float) xoffset;
         scrollY = (float) yoffset;
+        InputSystem.pushScroll(xoffset, yoffset);
     };
 
     /**
@@ -52,21 +63,42 @@ public class MouseListener {
         return new Vector2f(xPos, yPos);
     }
 
+    /**
+     * @return the cursor X screen coordinate
+     */
+    public static float getCursorX() {
+        return xPos;
+    }
+
+    /**
+     * @return the cursor Y screen coordinate
+     */
+    public static float getCursorY() {
+        return yPos;
+    }
+
+    /**
+     * @return a counter incremented at each cursor move
+     */
+    public static int getCursorVersion() {
+        return cursorVersion;
+    }
+
     /**
      * @return cursor X and Y orthonormal coordinates
      */
     public static Vector2f getOrthoCursorPos() {
-        float currentX = getCursorPos().x;
-        float currentY = getCursorPos().y;
-        currentX = (currentX / (float) GLFWWindow.getWidth()) * 2.0f - 1.0f;
-        currentY = (currentY / (float) GLFWWindow.getHeight()) * 2.0f - 1.0f;
-        Vector4f tmpX = new Vector4f(currentX, 0, 0, 1);
-        Vector4f tmpY = new Vector4f(0, currentY, 0, 1);
-        tmpX.mul(SceneManager.getCurrentScene().getCamera().getInverseProjectionMatrix()).mul(SceneManager.getCurrentScene().getCamera().getInverseViewMatrix());
-        tmpY.mul(SceneManager.getCurrentScene().getCamera().getInverseProjectionMatrix()).mul(SceneManager.getCurrentScene().getCamera().getInverseViewMatrix());
-        currentX = tmpX.x;
-        currentY = tmpY.y;
-        return new Vector2f(currentX, currentY);
+        return new Vector2f(getWorldCursorPos());
+    }
+
+    /**
+     * Get the cursor world coordinates in the current Scene, without allocation
+     * The returned vector is shared and updated when the cursor or the camera moves
+     *
+     * @return cursor X and Y world coordinates
+     */
+    public static Vector2fc getWorldCursorPos() {
+        return SceneManager.getCurrentScene().getCamera().getCursorWorldPos();
     }
 
     /**
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.scheduling;
+
+import fr.dwightstudio.dsengine.logging.GameLogger;
+
+import java.text.MessageFormat;
+import java.util.concurrent.locks.LockSupport;
+
+public class HeadlessRunner {
+
+    private final int tickRate;
+    private final long tickNanos;
+    private final double tickDuration;
+    private boolean realTime = false;
+    private boolean renderStage = false;
+
+    private volatile boolean running = false;
+    private volatile long virtualTime;
+    private long tickCount = 0;
+    private double ticksPerSecond = 0.0;
+
+    /**
+     * Create a new HeadlessRunner
+     * It drives the Scheduler without window nor OpenGL context, with a virtual clock advanced by a fixed step at
+     * each tick, so that the same tasks always see the same times.
+     *
+     * @param tickRate the number of ticks per virtual second
+     */
+    public HeadlessRunner(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("The tick rate must be positive");
+        }
+        this.tickRate = tickRate;
+        this.tickNanos = 1_000_000_000L / tickRate;
+        this.tickDuration = 1.0 / tickRate;
+    }
+
+    /**
+     * Run the ticks in real time (one tick every 1/tickRate second) instead of as fast as possible
+     *
+     * @param realTime the real time value
+     */
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    /**
+     * Also run the PRE_RENDER and POST_RENDER stages (nothing is rendered)
+     *
+     * @param renderStage the render stage value
+     */
+    public void setRenderStage(boolean renderStage) {
+        this.renderStage = renderStage;
+    }
+
+    /**
+     * Run until stop() is called
+     */
+    public void start() {
+        run(Long.MAX_VALUE);
+    }
+
+    /**
+     * Run a specified amount of ticks (or until stop() is called)
+     *
+     * @param ticks the number of ticks to run
+     */
+    public void run(long ticks) {
+        running = true;
+        // Starting on a tick of the timing wheel makes the expiry of every timer independent of when the run started
+        virtualTime = Scheduler.alignToTimer(Scheduler.nanoTime());
+        Scheduler.setClock(() -> virtualTime, true);
+        GameLogger.getLogger("HeadlessRunner").info(MessageFormat.format("Started the headless loop at {0} ticks per second", tickRate));
+
+        long startTime = System.nanoTime();
+        long reportTime = startTime;
+        long reportTicks = 0;
+        try {
+            for (long tick = 0; tick < ticks && running; tick++) {
+                virtualTime += tickNanos;
+                Scheduler.headlessLoop(tickDuration, renderStage);
+                tickCount++;
+                reportTicks++;
+
+                long now = System.nanoTime();
+                if (now - reportTime >= 1_000_000_000L) {
+                    ticksPerSecond = reportTicks * 1_000_000_000.0 / (now - reportTime);
+                    GameLogger.getLogger("HeadlessRunner").debug(MessageFormat.format("{0} ticks per second", ticksPerSecond));
+                    reportTime = now;
+                    reportTicks = 0;
+                }
+
+                if (realTime) {
+                    long wait = startTime + (tick + 1) * tickNanos - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+        } finally {
+            long now = System.nanoTime();
+            if (now > reportTime && reportTicks > 0 && ticksPerSecond == 0.0) {
+                ticksPerSecond = reportTicks * 1_000_000_000.0 / (now - reportTime);
+            }
+            running = false;
+            // The real clock is offset so that the time never goes back for the tasks planned during the run
+            long offset = Math.max(0, virtualTime - System.nanoTime());
+            Scheduler.setClock(() -> System.nanoTime() + offset, false);
+            GameLogger.getLogger("HeadlessRunner").info(MessageFormat.format("Stopped the headless loop after {0} ticks", tickCount));
+        }
+    }
+
+    /**
+     * Stop the loop at the end of the current tick
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * @return true if the loop is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of ticks run since the creation of this runner
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return the number of ticks run during the last second of real time
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return the current virtual time in nanoseconds
+     */
+    public long getVirtualTime() {
+        return virtualTime;
+    }
+}
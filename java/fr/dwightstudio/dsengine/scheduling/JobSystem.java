@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.scheduling;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+public class JobSystem {
+
+    private static ForkJoinPool pool;
+    private static boolean enabled = true;
+    private static int grainSize = 8;
+    private static final Map<String, JobTiming> timings = new HashMap<>();
+
+    /**
+     * Run a body for every index in [0, count[ and wait for all of them to be done
+     * The indices are split in chunks which are run by the job workers (idle workers steal chunks from the busy ones),
+     * the calling thread takes part in the work. Small jobs are run directly on the calling thread.
+     *
+     * @param name the job name (used for the timings)
+     * @param count the number of indices
+     * @param body the body to run for each index
+     */
+    public static void parallelFor(String name, int count, IntConsumer body) {
+        JobTiming timing = getTiming(name);
+        long start = System.nanoTime();
+
+        if (!enabled || count <= grainSize) {
+            for (int i = 0; i < count; i++) {
+                body.accept(i);
+            }
+            long duration = System.nanoTime() - start;
+            timing.record(duration, duration, count, false);
+            return;
+        }
+
+        AtomicLong workNanos = new AtomicLong();
+        getPool().invoke(new Chunk(body, 0, count, workNanos));
+        timing.record(System.nanoTime() - start, workNanos.get(), count, true);
+    }
+
+    /**
+     * @param name the job name
+     * @return the timings of the last run of this job
+     */
+    public static synchronized JobTiming getTiming(String name) {
+        return timings.computeIfAbsent(name, JobTiming::new);
+    }
+
+    /**
+     * Enable or disable the parallel execution of the jobs (they are run on the calling thread when disabled)
+     *
+     * @param enabled the new value
+     */
+    public static void setEnabled(boolean enabled) {
+        JobSystem.enabled = enabled;
+    }
+
+    /**
+     * @return true if the jobs are run in parallel
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set the max number of indices run by a single chunk
+     *
+     * @param grainSize the chunk size
+     */
+    public static void setGrainSize(int grainSize) {
+        JobSystem.grainSize = Math.max(1, grainSize);
+    }
+
+    /**
+     * Set the number of job workers, the current workers are stopped
+     *
+     * @param parallelism the number of workers
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = createPool(parallelism);
+    }
+
+    /**
+     * Stop the job workers, called when the game loop ends
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = createPool(Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+    private static ForkJoinPool createPool(int parallelism) {
+        return new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(MessageFormat.format("Engine Job Worker {0}", thread.getPoolIndex()));
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * A range of indices, split in two halves until it is small enough
+     */
+    private static class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer body;
+        private final int start;
+        private final int end;
+        private final AtomicLong workNanos;
+
+        private Chunk(IntConsumer body, int start, int end, AtomicLong workNanos) {
+            this.body = body;
+            this.start = start;
+            this.end = end;
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= grainSize) {
+                long begin = System.nanoTime();
+                for (int i = start; i < end; i++) {
+                    body.accept(i);
+                }
+                workNanos.addAndGet(System.nanoTime() - begin);
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Chunk(body, start, middle, workNanos), new Chunk(body, middle, end, workNanos));
+            }
+        }
+    }
+
+    /**
+     * Timings of the last run of a job
+     */
+    public static class JobTiming {
+        private final String name;
+        private volatile long wallNanos;
+        private volatile long workNanos;
+        private volatile int count;
+        private volatile boolean parallel;
+
+        private JobTiming(String name) {
+            this.name = name;
+        }
+
+        private void record(long wallNanos, long workNanos, int count, boolean parallel) {
+            this.wallNanos = wallNanos;
+            this.workNanos = workNanos;
+            this.count = count;
+            this.parallel = parallel;
+        }
+
+        /**
+         * @return the job name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the time in nanoseconds between the start and the end of the job
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return the time in nanoseconds spent running the job body, summed over all the workers
+         */
+        public long getWorkNanos() {
+            return workNanos;
+        }
+
+        /**
+         * @return the number of indices of the job
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return true if the job was run in parallel
+         */
+        public boolean isParallel() {
+            return parallel;
+        }
+
+        /**
+         * @return the work time divided by the wall time (about 1 when run serially)
+         */
+        public double getSpeedup() {
+            return wallNanos == 0 ? 1.0 : (double) workNanos / wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            return MessageFormat.format("{0}: {1} items in {2}us (x{3})", name, count, wallNanos / 1000, getSpeedup());
+        }
+    }
+}
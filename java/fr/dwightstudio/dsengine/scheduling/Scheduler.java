@@ -11,13 +11,14 @@ package fr.dwightstudio.dsengine.scheduling;
 import fr.dwightstudio.dsengine.graphics.GLFWWindow;
 import fr.dwightstudio.dsengine.graphics.utils.FramebufferManager;
 import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
+import fr.dwightstudio.dsengine.inputs.InputSystem;
 import fr.dwightstudio.dsengine.logging.GameLogger;
 
 import java.text.MessageFormat;
-import java.util.Comparator;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
 
 import static org.lwjgl.glfw.GLFW.glfwSwapBuffers;
 import static org.lwjgl.opengl.GL11.*;
@@ -26,7 +27,35 @@ public class Scheduler {
 
     // Basic var
     private static int lastTaskID = 0;
-    private static CopyOnWriteArrayList<Task> pendingTasks = new CopyOnWriteArrayList<>();
+    private static final int STAGE_COUNT = 8;
+
+    // Tasks planned since the last dispatch (can be filled from any thread)
+    private static final Queue<Task> incomingTasks = new ConcurrentLinkedQueue<>();
+    private static volatile boolean needsCompaction = false;
+
+    // One bucket per stage bit, kept sorted by priority (only touched by the main thread)
+    private static final Task[][] stageTasks = new Task[STAGE_COUNT][16];
+    private static final int[] stageTaskCount = new int[STAGE_COUNT];
+
+    // Tasks waiting for their deadline, and tasks whose deadline has arrived (sorted by priority)
+    private static final TimingWheel timingWheel = new TimingWheel(1_000_000L, System.nanoTime());
+    private static final Queue<Task> canceledTimers = new ConcurrentLinkedQueue<>();
+    private static Task[] dueTasks = new Task[16];
+    private static int dueTaskCount = 0;
+
+    // Clock (replaced by a virtual clock when running headless)
+    private static volatile LongSupplier clock = System::nanoTime;
+    private static volatile boolean headless = false;
+
+    // Fixed timestep
+    private static boolean fixedTimestep = false;
+    private static double tickDuration = 1.0 / 60.0;
+    private static int maxCatchUpSteps = 5;
+    private static double accumulator = 0.0;
+    private static double interpolationAlpha = 1.0;
+
+    // Executor used by async tasks (created on first use)
+    private static TaskExecutor asyncExecutor;
 
     // Pre/Post Loops
     public static final int PRE_INPUT = 0b1;
@@ -43,18 +72,20 @@ public class Scheduler {
     // Main loops (in the order of call)
 
     public static void inputLoop(double dt) {
-
+        // Build the input snapshot of the frame
+        InputSystem.update();
     }
 
     public static void updateLoop(double dt) {
-
+        // Update the scenes
+        SceneManager.updateScenes(dt);
     }
 
-    public static void renderLoop(double dt) {
+    public static void renderLoop(double dt, double alpha) {
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); // Clear the current framebuffer
 
         // Render the current scene
-        SceneManager.updateScenes(dt);
+        SceneManager.renderScenes();
 
         FramebufferManager.renderAll();
         glfwSwapBuffers(GLFWWindow.getWindow()); // Swap the buffers
@@ -63,18 +94,54 @@ public class Scheduler {
     // Master loop
 
     public static void masterLoop(double dt) {
+        loop(dt, true, true);
+    }
+
+    /**
+     * Run the stages of one frame without window nor OpenGL context (see HeadlessRunner)
+     *
+     * @param dt the delta time
+     * @param renderStage if the PRE_RENDER and POST_RENDER stages should be run (nothing is rendered)
+     */
+    public static void headlessLoop(double dt, boolean renderStage) {
+        loop(dt, renderStage, false);
+    }
+
+    private static void loop(double dt, boolean renderStage, boolean render) {
 
         execute(PRE_INPUT);
         inputLoop(dt);
         execute(POST_INPUT);
 
-        execute(PRE_UPDATE);
-        updateLoop(dt);
-        execute(POST_UPDATE);
-
-        execute(PRE_RENDER);
-        renderLoop(dt);
-        execute(POST_RENDER);
+        if (fixedTimestep) {
+            accumulator += dt;
+            int steps = 0;
+            while (accumulator >= tickDuration && steps < maxCatchUpSteps) {
+                execute(PRE_UPDATE);
+                updateLoop(tickDuration);
+                execute(POST_UPDATE);
+                accumulator -= tickDuration;
+                steps++;
+            }
+            if (accumulator >= tickDuration) {
+                // Too late to catch up, the remaining time is dropped instead of slowing down the next frames
+                accumulator %= tickDuration;
+            }
+            interpolationAlpha = accumulator / tickDuration;
+        } else {
+            execute(PRE_UPDATE);
+            updateLoop(dt);
+            execute(POST_UPDATE);
+            interpolationAlpha = 1.0;
+        }
+
+        if (renderStage) {
+            execute(PRE_RENDER);
+            if (render) {
+                renderLoop(dt, interpolationAlpha);
+            }
+            execute(POST_RENDER);
+        }
 
         execute(POST_PROCESSING);
         execute(CLEANING);
@@ -82,51 +149,290 @@ public class Scheduler {
 
     }
 
+    // Fixed timestep
+
+    /**
+     * Run the update stages at a fixed rate, independently of the frame rate
+     * The render stages are still run once per frame and receive an interpolation alpha
+     *
+     * @param tickRate the number of updates per second
+     * @param maxCatchUpSteps the max number of updates in a single frame (the remaining time is dropped)
+     */
+    public static void setFixedTimestep(int tickRate, int maxCatchUpSteps) {
+        if (tickRate <= 0 || maxCatchUpSteps <= 0) {
+            throw new IllegalArgumentException("The tick rate and the max catch-up steps must be positive");
+        }
+        tickDuration = 1.0 / tickRate;
+        Scheduler.maxCatchUpSteps = maxCatchUpSteps;
+        accumulator = 0.0;
+        fixedTimestep = true;
+    }
+
+    /**
+     * Run the update stages once per frame with the frame delta time (default)
+     */
+    public static void disableFixedTimestep() {
+        fixedTimestep = false;
+        accumulator = 0.0;
+        interpolationAlpha = 1.0;
+    }
+
+    /**
+     * @return true if the update stages are run at a fixed rate
+     */
+    public static boolean isFixedTimestep() {
+        return fixedTimestep;
+    }
+
+    /**
+     * @return the duration in seconds of a fixed update
+     */
+    public static double getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Get the position of the current frame between the last fixed update and the next one
+     * Renderers can use it to interpolate between the previous and the current state
+     *
+     * @return a value between 0 and 1 (always 1 when the fixed timestep is disabled)
+     */
+    public static double getInterpolationAlpha() {
+        return interpolationAlpha;
+    }
+
     // Task Execution and Cleaning
 
     private static void execute(int stage) {
-        List<Task> stageTask = pendingTasks.stream().filter(task -> (task.stages & stage) == stage && !task.isCanceled()).sorted(Comparator.comparingInt(task -> task.priority)).collect(Collectors.toList());
-
-        stageTask.forEach(task -> {
-            try {
-                task.internalDelay += GLFWWindow.getDeltaTime() * 1000;
-                if (task.repeatable) {
-                    task.internalPeriod += GLFWWindow.getDeltaTime() * 1000;
-                    if (task.internalDelay >= task.delay && task.internalPeriod >= task.period) {
-                        if (task.async) {
-                            Thread t = new Thread(task.runnable);
-                            t.setName(MessageFormat.format("Engine Task {0} Thread", task.ID));
-                            t.start();
+        long now = nanoTime();
+        dispatchIncoming();
+        timingWheel.advance(now, Scheduler::wake);
+
+        int stageIndex = Integer.numberOfTrailingZeros(stage);
+        Task[] bucket = stageTasks[stageIndex];
+        int count = stageTaskCount[stageIndex]; // Tasks planned while dispatching will wait for the next pass
+        Task[] due = dueTasks;
+        int dueCount = dueTaskCount;
+
+        // Both arrays are sorted by priority, they are walked together to keep the global order
+        int i = 0;
+        int j = 0;
+        while (i < count || j < dueCount) {
+            if (j < dueCount && (i >= count || due[j].priority < bucket[i].priority)) {
+                Task task = due[j++];
+                if ((task.stages & stage) == 0 || task.isCanceled()) continue;
+
+                try {
+                    if (run(task)) {
+                        task.due = false;
+                        if (task.repeatable) {
+                            rearm(task, now);
                         } else {
-                            task.runnable.run();
+                            task.setCanceled(true);
                         }
-                        task.internalPeriod = 0;
                     }
-                } else {
-                    if (task.internalDelay >= task.delay) {
-                        if (task.async) {
-                            Thread t = new Thread(task.runnable);
-                            t.setName(MessageFormat.format("Engine Task {0} Thread", task.ID));
-                            t.start();
-                        } else {
-                            task.runnable.run();
-                        }
+                } catch (CancelTaskError e) {
+                    task.setCanceled(true);
+                } catch (Exception e) {
+                    GameLogger.getLogger("Scheduler").warn(MessageFormat.format("Error while executing Task#{0}", task.ID));
+                    GameLogger.getLogger("Scheduler").warn(e.getStackTrace());
+                    if (task.repeatable) {
+                        task.due = false;
+                        rearm(task, now);
+                    }
+                }
+            } else {
+                Task task = bucket[i++];
+                if (task.isCanceled()) continue;
+
+                try {
+                    if (run(task) && !task.repeatable) {
                         task.setCanceled(true);
-                        pendingTasks.remove(task);
                     }
+                } catch (CancelTaskError e) {
+                    task.setCanceled(true);
+                } catch (Exception e) {
+                    GameLogger.getLogger("Scheduler").warn(MessageFormat.format("Error while executing Task#{0}", task.ID));
+                    GameLogger.getLogger("Scheduler").warn(e.getStackTrace());
+                }
+            }
+        }
+
+        if (dueCount > 0) {
+            compactDueTasks();
+        }
+    }
+
+    /**
+     * Runs a task, either directly or through the async executor
+     *
+     * @param task the task to run
+     * @return false if an async task could not be submitted (it will be retried at the next pass)
+     */
+    private static boolean run(Task task) {
+        if (task.async) {
+            return getAsyncExecutor().submit(task);
+        }
+        task.runnable.run();
+        return true;
+    }
+
+    /**
+     * Moves the freshly planned tasks to the timing wheel or directly into their stages
+     */
+    private static void dispatchIncoming() {
+        Task task;
+        while ((task = incomingTasks.poll()) != null) {
+            if (task.isCanceled()) continue;
+
+            if (task.delay > 0) {
+                timingWheel.schedule(task);
+            } else {
+                wake(task);
+            }
+        }
+    }
+
+    /**
+     * Called when the deadline of a task has arrived
+     * A task repeated at each iteration joins its stages for good, the other ones are run once at the next pass
+     *
+     * @param task the task whose deadline has arrived
+     */
+    private static void wake(Task task) {
+        if (task.isCanceled()) return;
+
+        if (task.repeatable && task.period <= 0) {
+            for (int stageIndex = 0; stageIndex < STAGE_COUNT; stageIndex++) {
+                if ((task.stages & (1 << stageIndex)) != 0) {
+                    stageTasks[stageIndex] = insert(stageTasks[stageIndex], stageTaskCount[stageIndex], task);
+                    stageTaskCount[stageIndex]++;
+                }
+            }
+        } else {
+            task.due = true;
+            dueTasks = insert(dueTasks, dueTaskCount, task);
+            dueTaskCount++;
+        }
+    }
+
+    /**
+     * Plans the next execution of a periodic task according to its catch-up policy
+     *
+     * @param task the periodic task
+     * @param now the current Scheduler.nanoTime() value
+     */
+    private static void rearm(Task task, long now) {
+        long period = task.period * 1_000_000L;
+        switch (task.getCatchUpPolicy()) {
+            case Task.FIXED_DELAY:
+                task.deadline = now + period;
+                break;
+            case Task.CATCH_UP:
+                task.deadline += period;
+                break;
+            default:
+                task.deadline += period;
+                if (task.deadline <= now) {
+                    task.deadline += ((now - task.deadline) / period + 1) * period;
                 }
-            } catch (CancelTaskError e) {
-                task.setCanceled(true);
-                pendingTasks.remove(task);
-            } catch (Exception e) {
-                GameLogger.getLogger("Scheduler").warn(MessageFormat.format("Error while executing Task#{0}", task.ID));
-                GameLogger.getLogger("Scheduler").warn(e.getStackTrace());
+                break;
+        }
+        timingWheel.schedule(task);
+    }
+
+    /**
+     * Inserts a task in an array sorted by priority, after every task with a lower or equal priority
+     *
+     * @param tasks the sorted array
+     * @param count the number of tasks in the array
+     * @param task the task to insert
+     * @return the array containing the task (a bigger copy if the array was full)
+     */
+    private static Task[] insert(Task[] tasks, int count, Task task) {
+        if (count == tasks.length) {
+            tasks = Arrays.copyOf(tasks, count * 2);
+        }
+
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tasks[middle].priority <= task.priority) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        System.arraycopy(tasks, low, tasks, low + 1, count - low);
+        tasks[low] = task;
+        return tasks;
+    }
+
+    /**
+     * Removes the tasks that are not due anymore from the due tasks
+     */
+    private static void compactDueTasks() {
+        int kept = 0;
+        for (int i = 0; i < dueTaskCount; i++) {
+            Task task = dueTasks[i];
+            if (task.due && !task.isCanceled()) {
+                dueTasks[kept++] = task;
+            } else {
+                task.due = false;
             }
-        });
+        }
+        Arrays.fill(dueTasks, kept, dueTaskCount, null);
+        dueTaskCount = kept;
     }
 
     private static void clean() {
-        pendingTasks = pendingTasks.stream().filter(task -> !task.canceled).collect(Collectors.toCollection(CopyOnWriteArrayList::new));
+        Task task;
+        while ((task = canceledTimers.poll()) != null) {
+            timingWheel.remove(task);
+        }
+
+        if (!needsCompaction) return;
+        needsCompaction = false;
+
+        for (int stageIndex = 0; stageIndex < STAGE_COUNT; stageIndex++) {
+            Task[] bucket = stageTasks[stageIndex];
+            int count = stageTaskCount[stageIndex];
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!bucket[i].isCanceled()) {
+                    bucket[kept++] = bucket[i];
+                }
+            }
+            Arrays.fill(bucket, kept, count, null);
+            stageTaskCount[stageIndex] = kept;
+        }
+    }
+
+    /**
+     * Notifies the Scheduler that a task has been canceled and should be removed at the next cleaning
+     *
+     * @param task the canceled task
+     */
+    static void markForRemoval(Task task) {
+        if (task.repeatable && task.period <= 0) {
+            needsCompaction = true; // Only the tasks repeated at each iteration are kept in the stage buckets
+        }
+        if (task.timerScheduled) {
+            canceledTimers.add(task);
+        }
+    }
+
+    /**
+     * Adds a fresh task to the pending tasks
+     *
+     * @param task the task to add
+     * @return the same task
+     */
+    private static Task add(Task task) {
+        incomingTasks.add(task);
+        return task;
     }
 
     // Task Scheduling
@@ -142,8 +448,7 @@ public class Scheduler {
      */
     public static Task plan(Runnable runnable, int stages, boolean async, int priority) {
         Task task = new Task(runnable, stages, async, priority, 0, false, 0);
-        pendingTasks.add(task);
-        return task;
+        return add(task);
     }
 
     /**
@@ -158,8 +463,7 @@ public class Scheduler {
      */
     public static Task delay(Runnable runnable, int stages, boolean async, int priority, int delay) {
         Task task = new Task(runnable, stages, async, priority, delay, false, 0);
-        pendingTasks.add(task);
-        return task;
+        return add(task);
     }
 
     /**
@@ -174,8 +478,7 @@ public class Scheduler {
      */
     public static Task planRepeated(Runnable runnable, int stages, boolean async, int priority, int period) {
         Task task = new Task(runnable, stages, async, priority, 0, true, period);
-        pendingTasks.add(task);
-        return task;
+        return add(task);
     }
 
     /**
@@ -191,8 +494,7 @@ public class Scheduler {
      */
     public static Task delayRepeated(Runnable runnable, int stages, boolean async, int priority, int period, int delay) {
         Task task = new Task(runnable, stages, async, priority, delay, true, period);
-        pendingTasks.add(task);
-        return task;
+        return add(task);
     }
 
     /**
@@ -209,8 +511,80 @@ public class Scheduler {
      */
     public static Task schedule(Runnable runnable, int stages, boolean async, int priority, int delay, boolean repeatable, int period) {
         Task task = new Task(runnable, stages, async, priority, delay, repeatable, period);
-        pendingTasks.add(task);
-        return task;
+        return add(task);
+    }
+
+    // Clock
+
+    /**
+     * @return the current time in nanoseconds used to plan the tasks (System.nanoTime() unless running headless)
+     */
+    public static long nanoTime() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Round a time up to the start of a tick of the timing wheel, so that a clock starting there always sees the
+     * same tick boundaries
+     *
+     * @param time a Scheduler.nanoTime() value
+     * @return the aligned time
+     */
+    static long alignToTimer(long time) {
+        return timingWheel.ceilToTick(time);
+    }
+
+    /**
+     * Replace the clock used to plan the tasks
+     *
+     * @param clock a nanosecond clock, it must never go back and must not be behind the previous clock when set
+     * @param headless if the engine runs without window nor OpenGL context
+     */
+    static void setClock(LongSupplier clock, boolean headless) {
+        Scheduler.clock = clock;
+        Scheduler.headless = headless;
+    }
+
+    /**
+     * @return true if the engine is driven by a HeadlessRunner (no window nor OpenGL context)
+     */
+    public static boolean isHeadless() {
+        return headless;
+    }
+
+    // Async execution
+
+    /**
+     * Set the executor used to run async tasks
+     * The previous executor is shut down
+     *
+     * @param taskExecutor a TaskExecutor (see TaskExecutor.createDefault() or TaskExecutor.createVirtual())
+     */
+    public static synchronized void setAsyncExecutor(TaskExecutor taskExecutor) {
+        if (asyncExecutor != null && asyncExecutor != taskExecutor) {
+            asyncExecutor.shutdown();
+        }
+        asyncExecutor = taskExecutor;
+    }
+
+    /**
+     * @return the executor used to run async tasks
+     */
+    public static synchronized TaskExecutor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            asyncExecutor = TaskExecutor.createDefault();
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Shut down the async executor, called when the game loop ends
+     */
+    public static synchronized void shutdown() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+            asyncExecutor = null;
+        }
     }
 
     /**
@@ -13,19 +13,34 @@ import org.jetbrains.annotations.NotNull;
 import java.text.MessageFormat;
 
 public class Task implements Comparable {
+    // Catch-up policies of periodic tasks
+    public static final int FIXED_DELAY = 0;
+    public static final int FIXED_RATE = 1;
+    public static final int CATCH_UP = 2;
+
     public final int ID;
     public final int stages;
     public final int priority;
     public final int delay;
     public final boolean async;
-    protected int internalDelay;
     public final boolean repeatable;
     public final int period;
-    protected int internalPeriod;
+    private int catchUpPolicy = FIXED_RATE;
 
     protected final Runnable runnable;
+    protected volatile boolean inFlight = false;
+
+    // Timing (Scheduler.nanoTime() based, only touched by the main thread)
+    protected long deadline;
+    protected boolean due = false;
+    long timerExpiry;
+    int timerLevel;
+    int timerSlot;
+    Task timerNext;
+    Task timerPrev;
+    volatile boolean timerScheduled = false;
 
-    public boolean canceled = false;
+    public volatile boolean canceled = false;
 
     protected Task(Runnable runnable, int stages, boolean async, int priority, int delay, boolean repeatable, int period) {
         this.async = async;
@@ -33,21 +48,57 @@ public class Task implements Comparable {
         this.stages = stages;
         this.priority = priority;
         this.delay = delay;
-        this.internalDelay = 0;
         this.repeatable = repeatable;
         this.period = period;
-        this.internalPeriod = period;
+        this.deadline = Scheduler.nanoTime() + delay * 1_000_000L;
         this.runnable = runnable;
     }
 
     public void setCanceled(boolean canceled) {
         this.canceled = canceled;
+        if (canceled) {
+            Scheduler.markForRemoval(this);
+        }
     }
 
     public boolean isCanceled() {
         return canceled;
     }
 
+    /**
+     * Set how a periodic task catches up when its executions are late
+     *
+     * Task.FIXED_DELAY : the next execution is planned one period after the last one actually happened (drifts)
+     * Task.FIXED_RATE : executions stay aligned on the first deadline, the missed ones are skipped (default)
+     * Task.CATCH_UP : executions stay aligned on the first deadline, the missed ones are run one per pass
+     *
+     * @param catchUpPolicy the catch-up policy
+     */
+    public void setCatchUpPolicy(int catchUpPolicy) {
+        this.catchUpPolicy = catchUpPolicy;
+    }
+
+    /**
+     * @return the catch-up policy of this task
+     */
+    public int getCatchUpPolicy() {
+        return catchUpPolicy;
+    }
+
+    /**
+     * @return the Scheduler.nanoTime() value at which this task is due
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return true if this async task is currently running in the executor
+     */
+    public boolean isInFlight() {
+        return inFlight;
+    }
+
     @Override
     public int compareTo(@NotNull Object o) {
         if (o instanceof Task) {
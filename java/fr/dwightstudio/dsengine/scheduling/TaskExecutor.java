@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.scheduling;
+
+import fr.dwightstudio.dsengine.logging.GameLogger;
+
+import java.text.MessageFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskExecutor {
+    public static final int THREAD_POOL = 0;
+    public static final int VIRTUAL_THREADS = 1;
+
+    private final ExecutorService executorService;
+    private final int mode;
+
+    /**
+     * Create a new TaskExecutor backed by a bounded pool of worker threads
+     *
+     * @param workers the number of worker threads
+     * @param queueSize the max number of async tasks waiting for a free worker
+     */
+    public TaskExecutor(int workers, int queueSize) {
+        AtomicInteger workerID = new AtomicInteger();
+        this.executorService = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName(MessageFormat.format("Engine Task Worker {0}", workerID.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mode = THREAD_POOL;
+    }
+
+    private TaskExecutor(ExecutorService executorService, int mode) {
+        this.executorService = executorService;
+        this.mode = mode;
+    }
+
+    /**
+     * Create a new TaskExecutor with a worker per available core (minus the main thread)
+     *
+     * @return a TaskExecutor
+     */
+    public static TaskExecutor createDefault() {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new TaskExecutor(workers, workers * 64);
+    }
+
+    /**
+     * Create a new TaskExecutor that starts each async task in a virtual thread
+     * Virtual threads are only available since Java 21, the default thread pool is used on older runtimes
+     *
+     * @return a TaskExecutor
+     */
+    public static TaskExecutor createVirtual() {
+        try {
+            ExecutorService executorService = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new TaskExecutor(executorService, VIRTUAL_THREADS);
+        } catch (ReflectiveOperationException e) {
+            GameLogger.getLogger("TaskExecutor").warn("Virtual threads are not supported by this runtime, falling back to a thread pool");
+            return createDefault();
+        }
+    }
+
+    /**
+     * Submit a task to be run asynchronously
+     * The task is not submitted again while its previous run is still in flight
+     *
+     * @param task the task to run
+     * @return true if the task has been submitted, otherwise false
+     */
+    boolean submit(Task task) {
+        if (task.inFlight) return false;
+
+        task.inFlight = true;
+        try {
+            executorService.execute(() -> run(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            task.inFlight = false;
+            GameLogger.getLogger("TaskExecutor").warn(MessageFormat.format("Task#{0} has been rejected, the executor is saturated", task.ID));
+            return false;
+        }
+    }
+
+    private void run(Task task) {
+        try {
+            task.runnable.run();
+        } catch (CancelTaskError e) {
+            task.setCanceled(true);
+        } catch (Exception e) {
+            GameLogger.getLogger("TaskExecutor").warn(MessageFormat.format("Error while executing Task#{0}", task.ID));
+            GameLogger.getLogger("TaskExecutor").warn(e.getStackTrace());
+        } finally {
+            task.inFlight = false;
+        }
+    }
+
+    /**
+     * Stop accepting tasks, the tasks already submitted will still be run
+     */
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * @return the execution mode, either TaskExecutor.THREAD_POOL or TaskExecutor.VIRTUAL_THREADS
+     */
+    public int getMode() {
+        return mode;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020-2021 Dwight Studio's Team <support@dwight-studio.fr>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package fr.dwightstudio.dsengine.scheduling;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding the tasks waiting for their deadline
+ *
+ * Each level has 64 slots, a slot of the first level lasts one tick and a slot of the next level lasts as long as a
+ * whole revolution of the previous one. Tasks are moved down a level when the wheel reaches their slot, so advancing
+ * the wheel only touches the tasks whose deadline is near.
+ */
+class TimingWheel {
+    private static final int LEVEL_BITS = 6;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    // Tasks are linked directly through their timer fields, the slots only keep the head of each list
+    private final Task[][] wheel = new Task[LEVELS][SLOTS];
+    private final long tickNanos;
+    private final long origin;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Create a new TimingWheel
+     *
+     * @param tickNanos the duration of one tick in nanoseconds
+     * @param origin the Scheduler.nanoTime() value corresponding to the tick 0
+     */
+    TimingWheel(long tickNanos, long origin) {
+        this.tickNanos = tickNanos;
+        this.origin = origin;
+        this.currentTick = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Round a time up to the start of a tick
+     *
+     * @param time a Scheduler.nanoTime() value
+     * @return the start of the first tick at or after the time
+     */
+    long ceilToTick(long time) {
+        long relative = time - origin;
+        return origin + Math.floorDiv(relative + tickNanos - 1, tickNanos) * tickNanos;
+    }
+
+    /**
+     * Add a task to the wheel, it will be expired at the first tick after its deadline
+     *
+     * @param task the task to add
+     */
+    void schedule(Task task) {
+        long relative = task.deadline - origin;
+        long expiry = relative <= 0 ? 0 : (relative + tickNanos - 1) / tickNanos;
+        task.timerExpiry = Math.max(expiry, currentTick + 1);
+        place(task);
+        task.timerScheduled = true;
+        size++;
+    }
+
+    /**
+     * Remove a task from the wheel, does nothing if the task is not in the wheel
+     *
+     * @param task the task to remove
+     */
+    void remove(Task task) {
+        if (!task.timerScheduled) return;
+
+        unlink(task);
+        task.timerScheduled = false;
+        size--;
+    }
+
+    /**
+     * Advance the wheel up to the specified time and expire every task whose deadline has arrived
+     *
+     * @param now the current Scheduler.nanoTime() value
+     * @param expired called for every expired task
+     */
+    void advance(long now, Consumer<Task> expired) {
+        long targetTick = (now - origin) / tickNanos;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return;
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            if ((currentTick & SLOT_MASK) == 0) {
+                cascade(1);
+            }
+
+            int slot = (int) (currentTick & SLOT_MASK);
+            Task task = wheel[0][slot];
+            wheel[0][slot] = null;
+            while (task != null) {
+                Task next = task.timerNext;
+                task.timerNext = null;
+                task.timerPrev = null;
+                task.timerScheduled = false;
+                size--;
+                expired.accept(task);
+                task = next;
+            }
+
+            if (size == 0) {
+                currentTick = targetTick;
+            }
+        }
+    }
+
+    /**
+     * @return the number of tasks in the wheel
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Move the tasks of the current slot of a level into the lower levels
+     *
+     * @param level the level to cascade
+     */
+    private void cascade(int level) {
+        int slot = (int) ((currentTick >>> (level * LEVEL_BITS)) & SLOT_MASK);
+        if (slot == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+
+        Task task = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (task != null) {
+            Task next = task.timerNext;
+            place(task);
+            task = next;
+        }
+    }
+
+    /**
+     * Link a task in the slot matching its expiry tick
+     *
+     * @param task the task to link
+     */
+    private void place(Task task) {
+        long delta = task.timerExpiry - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * LEVEL_BITS)) {
+            level++;
+        }
+
+        // Deadlines beyond the last level are parked in its farthest slot and placed again when it is reached
+        long expiry = Math.min(task.timerExpiry, currentTick + (1L << (LEVELS * LEVEL_BITS)) - 1);
+        int slot = (int) ((expiry >>> (level * LEVEL_BITS)) & SLOT_MASK);
+
+        Task head = wheel[level][slot];
+        task.timerLevel = level;
+        task.timerSlot = slot;
+        task.timerPrev = null;
+        task.timerNext = head;
+        if (head != null) {
+            head.timerPrev = task;
+        }
+        wheel[level][slot] = task;
+    }
+
+    /**
+     * Unlink a task from its slot
+     *
+     * @param task the task to unlink
+     */
+    private void unlink(Task task) {
+        if (task.timerPrev != null) {
+            task.timerPrev.timerNext = task.timerNext;
+        } else {
+            wheel[task.timerLevel][task.timerSlot] = task.timerNext;
+        }
+        if (task.timerNext != null) {
+            task.timerNext.timerPrev = task.timerPrev;
+        }
+        task.timerNext = null;
+        task.timerPrev = null;
+    }
+}
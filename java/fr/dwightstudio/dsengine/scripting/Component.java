@@ -26,5 +26,16 @@ public abstract class Component {
     }
     public void remove() {}
 
+    /**
+     * A parallel-safe Component can be updated in a job worker, at the same time as the other RenderGroups
+     * Its update method must only modify its own state, must not read shared mutable state (like the cursor position)
+     * and must not call OpenGL. Subclasses of a parallel-safe Component whose update does more must return false.
+     *
+     * @return true if the Component can be updated outside of the main thread
+     */
+    public boolean isParallelSafe() {
+        return false;
+    }
+
     public void init() {}
 }
@@ -25,6 +25,8 @@ public class RenderGroup {
     private final int zIndex;
 
     private boolean dirty = true;
+    private int parallelUnsafeComponents = 0;
+    private Scene scene;
 
     /**
      * Create a RenderGroup
@@ -136,7 +138,9 @@ public class RenderGroup {
      */
     public void removeComponent(Component component) {
         component.remove();
-        components.remove(component);
+        if (components.remove(component) && !component.isParallelSafe()) {
+            parallelUnsafeComponents--;
+        }
     }
 
     /**
@@ -146,6 +150,9 @@ public class RenderGroup {
      */
     public void addComponent(Component component) {
         this.components.add(component);
+        if (!component.isParallelSafe()) {
+            parallelUnsafeComponents++;
+        }
         component.renderGroup = this;
         component.addComponent();
     }
@@ -158,6 +165,9 @@ public class RenderGroup {
     public void addComponents(Component[] components) {
         for (Component component : components) {
             this.components.add(component);
+            if (!component.isParallelSafe()) {
+                parallelUnsafeComponents++;
+            }
             component.renderGroup = this;
             component.addComponent();
         }
@@ -182,6 +192,13 @@ public class RenderGroup {
         dirty = false;
     }
 
+    /**
+     * @return true if every component of this RenderGroup can be updated outside of the main thread
+     */
+    public boolean isParallelSafe() {
+        return parallelUnsafeComponents == 0;
+    }
+
     /**
      * Initialize all the components
      * This method is called when a Scene is initialized or when you add a RenderGroup to a Scene
@@ -206,6 +223,22 @@ public class RenderGroup {
         return this.transform;
     }
 
+    /**
+     * @return the Scene containing this RenderGroup (null if it has not been added to a Scene)
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Set the Scene containing this RenderGroup
+     *
+     * @param scene a Scene
+     */
+    void setScene(Scene scene) {
+        this.scene = scene;
+    }
+
     /**
      * @return the Z level of this RenderGroup
      */
@@ -8,10 +8,15 @@
 
 package fr.dwightstudio.dsengine.scripting;
 
+import fr.dwightstudio.dsengine.events.EventListener;
+import fr.dwightstudio.dsengine.events.EventSystem;
+import fr.dwightstudio.dsengine.graphics.gui.WidgetGrid;
 import fr.dwightstudio.dsengine.graphics.objects.Camera;
 import fr.dwightstudio.dsengine.graphics.objects.Color;
 import fr.dwightstudio.dsengine.graphics.renderers.RendererHelper;
 import fr.dwightstudio.dsengine.graphics.utils.SceneManager;
+import fr.dwightstudio.dsengine.scheduling.JobSystem;
+import fr.dwightstudio.dsengine.scheduling.Scheduler;
 import org.joml.Vector2f;
 
 import java.util.ArrayList;
@@ -25,13 +30,17 @@ public abstract class Scene {
     private boolean isRunning = false;
     protected List<RenderGroup> renderGroups = new ArrayList<>();
     protected RendererHelper rendererHelper = new RendererHelper();
+    private final List<EventListener> eventListeners = new ArrayList<>();
+    private final WidgetGrid widgetGrid = new WidgetGrid();
 
     /**
      * Create a new Scene
      */
     public Scene() {
         this.camera = new Camera(new Vector2f());
-        glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+        if (!Scheduler.isHeadless()) {
+            glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+        }
         SceneManager.add(this);
     }
 
@@ -42,7 +51,9 @@ public abstract class Scene {
     public void start() {
         for (RenderGroup renderGroup : renderGroups) {
             renderGroup.init();
-            rendererHelper.addGameObject(renderGroup);
+            if (!Scheduler.isHeadless()) {
+                rendererHelper.addGameObject(renderGroup);
+            }
         }
     }
 
@@ -51,11 +62,17 @@ public abstract class Scene {
     }
 
     public void update(double dt) {
+        // The parallel-safe RenderGroups are spread over the job workers, the other ones stay on the main thread
+        JobSystem.parallelFor("Scene update", this.renderGroups.size(), index -> {
+            RenderGroup renderGroup = this.renderGroups.get(index);
+            if (renderGroup.isParallelSafe()) {
+                renderGroup.update(dt);
+            }
+        });
         for (RenderGroup renderGroup : this.renderGroups) {
-            renderGroup.update(dt);
-        }
-        if (SceneManager.getCurrentScene() == this) {
-            render();
+            if (!renderGroup.isParallelSafe()) {
+                renderGroup.update(dt);
+            }
         }
     }
 
@@ -69,12 +86,15 @@ public abstract class Scene {
      * @param renderGroup the RenderGroup to add
      */
     public void addGameObject(RenderGroup renderGroup) {
+        renderGroup.setScene(this);
         if (!isRunning) {
             renderGroups.add(renderGroup);
         } else {
             renderGroups.add(renderGroup);
             renderGroup.init();
-            rendererHelper.addGameObject(renderGroup);
+            if (!Scheduler.isHeadless()) {
+                rendererHelper.addGameObject(renderGroup);
+            }
         }
     }
 
@@ -84,7 +104,46 @@ public abstract class Scene {
      * @param color a color
      */
     public void setBackgroundColor(Color color) {
-        glClearColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+        if (!Scheduler.isHeadless()) {
+            glClearColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+        }
+    }
+
+    /**
+     * Register an event listener for the lifetime of the Scene
+     * The listener is unregistered when the Scene is removed from the SceneManager
+     *
+     * @param eventListener the event listener to register
+     */
+    public void registerListener(EventListener eventListener) {
+        synchronized (eventListeners) {
+            eventListeners.add(eventListener);
+        }
+        EventSystem.registerListener(eventListener);
+    }
+
+    /**
+     * Unregister all the event listeners registered by the Scene
+     */
+    public void unregisterListeners() {
+        synchronized (eventListeners) {
+            EventSystem.unregisterListeners(eventListeners);
+            eventListeners.clear();
+        }
+    }
+
+    /**
+     * @return the RendererHelper rendering the Scene
+     */
+    public RendererHelper getRendererHelper() {
+        return rendererHelper;
+    }
+
+    /**
+     * @return the spatial index of the Buttons of the Scene
+     */
+    public WidgetGrid getWidgetGrid() {
+        return widgetGrid;
     }
 
     /**
@@ -6,8 +6,11 @@ layout (location=1) in vec4 vColor;
 layout (location=2) in vec2 vTextureCoords;
 layout (location=3) in float vTextureID;
 
-uniform mat4 uProjectionMatrix;
-uniform mat4 uViewMatrix;
+// Shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjectionMatrix;
+    mat4 uViewMatrix;
+};
 
 out vec4 fColor;
 out vec2 fTextureCoords;
@@ -24,6 +27,7 @@ void main() {
 #version 330 core
 
 uniform sampler2D uTextures[8];
+uniform sampler2DArray uTextureArray; // Texture IDs from 8 are the layers of the array
 
 in vec4 fColor;
 in vec2 fTextureCoords;
@@ -32,7 +36,9 @@ in float fTextureID;
 out vec4 color;
 
 void main() {
-    if (fTextureID > 0) {
+    if (fTextureID >= 8) {
+        color = fColor * texture(uTextureArray, vec3(fTextureCoords, fTextureID - 8));
+    } else if (fTextureID > 0) {
         int id = int(fTextureID);
         color = fColor * texture(uTextures[id], fTextureCoords);
     } else {
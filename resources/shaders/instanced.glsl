@@ -0,0 +1,58 @@
+#type vertex
+#version 330 core
+
+// Corner of the quad, shared by every instance: (0, 0), (1, 0), (0, 1) or (1, 1)
+layout (location=0) in vec2 vCorner;
+
+// One record per Surface
+layout (location=1) in vec2 iCenter;
+layout (location=2) in vec2 iSize;
+layout (location=3) in float iRotation;
+layout (location=4) in vec4 iColor;
+layout (location=5) in vec4 iTextureRect;
+layout (location=6) in float iTextureID;
+
+// Shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjectionMatrix;
+    mat4 uViewMatrix;
+};
+
+out vec4 fColor;
+out vec2 fTextureCoords;
+out float fTextureID;
+
+void main() {
+    vec2 local = (vCorner - 0.5) * iSize;
+    float c = cos(iRotation);
+    float s = sin(iRotation);
+    vec2 position = vec2(local.x * c - local.y * s, local.x * s + local.y * c) + iCenter;
+
+    fColor = iColor;
+    fTextureCoords = mix(iTextureRect.xy, iTextureRect.zw, vCorner);
+    fTextureID = iTextureID;
+    gl_Position = uProjectionMatrix * uViewMatrix * vec4(position, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+uniform sampler2D uTextures[8];
+uniform sampler2DArray uTextureArray; // Texture IDs from 8 are the layers of the array
+
+in vec4 fColor;
+in vec2 fTextureCoords;
+in float fTextureID;
+
+out vec4 color;
+
+void main() {
+    if (fTextureID >= 8) {
+        color = fColor * texture(uTextureArray, vec3(fTextureCoords, fTextureID - 8));
+    } else if (fTextureID > 0) {
+        int id = int(fTextureID);
+        color = fColor * texture(uTextures[id], fTextureCoords);
+    } else {
+        color = fColor;
+    }
+}
@@ -5,8 +5,11 @@ layout (location=0) in vec3 vPos;
 layout (location=1) in vec4 vColor;
 layout (location=2) in vec2 vTextureCoords;
 
-uniform mat4 uProjectionMatrix;
-uniform mat4 uViewMatrix;
+// Shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjectionMatrix;
+    mat4 uViewMatrix;
+};
 
 out vec4 fColor;
 out vec2 fTextureCoords;